@@ -0,0 +1,412 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ca.phon.ui.jbreadcrumb.BreadcrumbEvent.BreadcrumbEventType;
+
+/**
+ * Base implementation of {@link BreadcrumbModel} providing listener
+ * management and event firing.
+ * 
+ * <p>Listeners are not serialized, a deserialized model has no
+ * listeners.</p>
+ * 
+ * @param <S>  the type of state
+ * @param <V>  the type of value associated with a state
+ */
+public abstract class AbstractBreadcrumbModel<S, V> implements BreadcrumbModel<S, V>, Serializable {
+	
+	private static final long serialVersionUID = -3032556785730012645L;
+	
+	/** The model reported as the source of fired events */
+	private final BreadcrumbModel<S, V> source;
+	
+	/**
+	 * Creates a new model which reports itself as the source of events.
+	 */
+	protected AbstractBreadcrumbModel() {
+		super();
+		this.source = this;
+	}
+	
+	/**
+	 * Creates a new model which reports the given model as the source
+	 * of events.  Used by adapters which delegate to this model.
+	 * 
+	 * @param source  the event source
+	 */
+	AbstractBreadcrumbModel(BreadcrumbModel<S, V> source) {
+		super();
+		this.source = source;
+	}
+	
+	/**
+	 * Gets the model reported as the source of events fired by this model.
+	 * 
+	 * @return the event source
+	 */
+	protected BreadcrumbModel<S, V> getSource() {
+		return source;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+	
+	@Override
+	public void addState(S state) {
+		addState(state, null);
+	}
+	
+	//
+	// Batch updates
+	//
+	
+	/** Nesting level of batch updates */
+	private transient int updateLevel = 0;
+	
+	/** Size of the breadcrumb when the batch update started */
+	private transient int updateSize;
+	
+	/** Current state when the batch update started */
+	private transient S updateOldState;
+	
+	/** Current value when the batch update started */
+	private transient V updateOldValue;
+	
+	/** Lowest index modified during the batch update, -1 if unmodified */
+	private transient int updateFirstIndex = -1;
+	
+	@Override
+	public void beginUpdate() {
+		if(updateLevel++ == 0) {
+			updateSize = size();
+			updateOldState = getCurrentState();
+			// resident value only, starting a batch must not load values
+			updateOldValue = (updateSize > 0 ? getValueIfPresentAt(updateSize-1) : null);
+			updateFirstIndex = -1;
+		}
+	}
+	
+	@Override
+	public void endUpdate() {
+		if(updateLevel == 0)
+			throw new IllegalStateException("No batch update in progress");
+		if(--updateLevel == 0) {
+			final int firstIndex = updateFirstIndex;
+			final S oldState = updateOldState;
+			final V oldValue = updateOldValue;
+			final int oldSize = updateSize;
+			updateOldState = null;
+			updateOldValue = null;
+			updateFirstIndex = -1;
+			
+			if(firstIndex >= 0)
+				fireStatesChanged(Math.max(0, Math.min(firstIndex, oldSize-1)),
+						Math.max(oldSize, size())-1, oldState, oldValue);
+		}
+	}
+	
+	@Override
+	public boolean isUpdating() {
+		return updateLevel > 0;
+	}
+	
+	/**
+	 * Records a modification made during a batch update.
+	 * 
+	 * @param index  the lowest index affected by the modification
+	 */
+	private void markUpdated(int index) {
+		updateFirstIndex = (updateFirstIndex < 0 ? index : Math.min(updateFirstIndex, index));
+	}
+	
+	//
+	// Listeners
+	//
+	
+	/**
+	 * Snapshot of registered breadcrumb listeners.  The array is never
+	 * modified once published; registration replaces it with a copy.
+	 */
+	private transient AtomicReference<BreadcrumbListener<S, V>[]> listeners =
+			new AtomicReference<>(emptyListenerArray());
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		listeners = new AtomicReference<>(emptyListenerArray());
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <S, V> BreadcrumbListener<S, V>[] emptyListenerArray() {
+		return (BreadcrumbListener<S, V>[])new BreadcrumbListener<?, ?>[0];
+	}
+	
+	@Override
+	public void addBreadcrumbListener(BreadcrumbListener<S, V> listener) {
+		if(listener == null) return;
+		BreadcrumbListener<S, V>[] current;
+		BreadcrumbListener<S, V>[] updated;
+		do {
+			current = listeners.get();
+			if(indexOfListener(current, listener) >= 0) return;
+			updated = Arrays.copyOf(current, current.length + 1);
+			updated[current.length] = listener;
+		} while(!listeners.compareAndSet(current, updated));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>Listeners registered with an executor are matched by the
+	 * listener they deliver to.</p>
+	 */
+	@Override
+	public void removeBreadcrumbListener(BreadcrumbListener<S, V> listener) {
+		BreadcrumbListener<S, V>[] current;
+		BreadcrumbListener<S, V>[] updated;
+		do {
+			current = listeners.get();
+			final int index = indexOfListener(current, listener);
+			if(index < 0) return;
+			updated = Arrays.copyOf(current, current.length - 1);
+			System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+		} while(!listeners.compareAndSet(current, updated));
+	}
+	
+	/**
+	 * Gets all breadcrumb listeners registered on this model.
+	 * 
+	 * @return a copy of the registered listeners, or an empty array
+	 */
+	public BreadcrumbListener<S, V>[] getBreadcrumbListeners() {
+		return listeners.get().clone();
+	}
+	
+	private int indexOfListener(BreadcrumbListener<S, V>[] listenerArray, BreadcrumbListener<S, V> listener) {
+		for(int i = 0; i < listenerArray.length; i++) {
+			BreadcrumbListener<S, V> registered = listenerArray[i];
+			if(registered instanceof ExecutorBreadcrumbListener && !(listener instanceof ExecutorBreadcrumbListener))
+				registered = ((ExecutorBreadcrumbListener<S, V>)registered).getDelegate();
+			if(registered.equals(listener))
+				return i;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Gets whether any listeners are registered.  Fire methods use this
+	 * to avoid creating events which nobody will receive.
+	 * 
+	 * @return <code>true</code> if at least one listener is registered
+	 */
+	protected boolean hasBreadcrumbListeners() {
+		return listeners.get().length > 0;
+	}
+	
+	/**
+	 * Dispatches an event to all listeners registered when this method
+	 * is called.  No lock is held while listeners are invoked, listeners
+	 * added or removed during dispatch take effect for the next event.
+	 * 
+	 * @param evt  the event to dispatch
+	 */
+	protected void fireBreadcrumbEvent(BreadcrumbEvent<S, V> evt) {
+		for(BreadcrumbListener<S, V> listener : listeners.get())
+			listener.breadCrumbEvent(evt);
+	}
+	
+	/**
+	 * Fires a state changed event to all registered listeners.  The old
+	 * value is the resident value of the first occurrence of the old
+	 * state, use {@link #fireStateChanged(int, Object, Object, Object)}
+	 * when the previous current value is known.
+	 * 
+	 * @param oldState  the previous state
+	 * @param newState  the new current state
+	 */
+	protected void fireStateChanged(S oldState, S newState) {
+		if(isUpdating()) {
+			markUpdated(size());
+			return;
+		}
+		if(!hasBreadcrumbListeners()) return;
+		// the current state may also occur lower in the breadcrumb
+		final int index = (newState != null && newState.equals(getCurrentState()) ? size()-1 : getIndexOfState(newState));
+		fireStateChanged(index, oldState, getValueIfPresent(oldState), newState);
+	}
+	
+	/**
+	 * Fires a state changed event to all registered listeners.  Values
+	 * are not loaded, the event's value is the resident value of the new
+	 * current state.
+	 * 
+	 * @param index  the index of the new current state, no event is
+	 *               fired if less than 0
+	 * @param oldState  the previous state
+	 * @param oldValue  the resident value of the previous state
+	 * @param newState  the new current state
+	 */
+	protected void fireStateChanged(int index, S oldState, V oldValue, S newState) {
+		if(isUpdating()) {
+			markUpdated(size());
+			return;
+		}
+		if(index < 0 || !hasBreadcrumbListeners()) return;
+		final V newValue = (index < size() ? getValueIfPresentAt(index) : getValueIfPresent(newState));
+		fireBreadcrumbEvent(new BreadcrumbEvent<>(source, newState, newValue,
+				index, oldState, oldValue, BreadcrumbEventType.GOTO_STATE));
+	}
+	
+	/**
+	 * Gets the value of the current state without loading it.
+	 * 
+	 * @return the resident current value, <code>null</code> if the
+	 *         breadcrumb is empty or the value is not resident
+	 */
+	protected V getCurrentValueIfPresent() {
+		final int size = size();
+		return (size > 0 ? getValueIfPresentAt(size-1) : null);
+	}
+	
+	/**
+	 * Fires a state removed event to all registered listeners.  The
+	 * event describes a range of states removed from the top of the
+	 * breadcrumb.
+	 * 
+	 * @param firstIndex  the index of the first removed state
+	 * @param lastIndex  the index of the last removed state
+	 * @param oldState  the current state before removal
+	 * @param oldValue  the current value before removal
+	 */
+	protected void fireStatesRemoved(int firstIndex, int lastIndex, S oldState, V oldValue) {
+		if(isUpdating()) {
+			markUpdated(firstIndex);
+			return;
+		}
+		if(!hasBreadcrumbListeners()) return;
+		fireBreadcrumbEvent(new BreadcrumbEvent<>(source, getCurrentState(), getCurrentValueIfPresent(), size()-1,
+				oldState, oldValue, firstIndex, lastIndex, BreadcrumbEventType.STATE_REMOVED));
+	}
+	
+	/**
+	 * Fires a state evicted event to all registered listeners.
+	 * 
+	 * @param index  the index the evicted state occupied
+	 * @param state  the evicted state
+	 * @param value  the value of the evicted state
+	 */
+	protected void fireStateEvicted(int index, S state, V value) {
+		if(isUpdating()) {
+			markUpdated(index);
+			return;
+		}
+		if(!hasBreadcrumbListeners()) return;
+		fireBreadcrumbEvent(new BreadcrumbEvent<>(source, state, value, index, BreadcrumbEventType.STATE_EVICTED));
+	}
+	
+	/**
+	 * Fires a value changed event to all registered listeners.
+	 * 
+	 * @param firstIndex  the index of the first state whose value changed
+	 * @param lastIndex  the index of the last state whose value changed
+	 * @param state  the state whose value changed
+	 * @param oldValue  the previous value
+	 * @param value  the new value
+	 */
+	protected void fireValueChanged(int firstIndex, int lastIndex, S state, V oldValue, V value) {
+		if(isUpdating()) {
+			markUpdated(firstIndex);
+			return;
+		}
+		if(!hasBreadcrumbListeners()) return;
+		fireBreadcrumbEvent(new BreadcrumbEvent<>(source, state, value, firstIndex,
+				state, oldValue, firstIndex, lastIndex, BreadcrumbEventType.VALUE_CHANGED));
+	}
+	
+	/**
+	 * Fires a cleared event to all registered listeners.
+	 * 
+	 * @param lastIndex  the index of the last removed state
+	 * @param oldState  the current state before the breadcrumb was cleared
+	 * @param oldValue  the current value before the breadcrumb was cleared
+	 */
+	protected void fireCleared(int lastIndex, S oldState, V oldValue) {
+		if(isUpdating()) {
+			markUpdated(0);
+			return;
+		}
+		if(!hasBreadcrumbListeners()) return;
+		fireBreadcrumbEvent(new BreadcrumbEvent<>(source, null, null, -1,
+				oldState, oldValue, 0, lastIndex, BreadcrumbEventType.CLEARED));
+	}
+	
+	/**
+	 * Fires a states changed event to all registered listeners.  Called
+	 * when the outermost batch update ends.
+	 * 
+	 * @param firstIndex  the lowest index which may have changed
+	 * @param lastIndex  the highest index, before or after the update, which may have changed
+	 * @param oldState  the current state when the update started
+	 * @param oldValue  the current value when the update started
+	 */
+	protected void fireStatesChanged(int firstIndex, int lastIndex, S oldState, V oldValue) {
+		if(!hasBreadcrumbListeners()) return;
+		fireBreadcrumbEvent(new BreadcrumbEvent<>(source, getCurrentState(), getCurrentValueIfPresent(), size()-1,
+				oldState, oldValue, firstIndex, lastIndex, BreadcrumbEventType.STATES_CHANGED));
+	}
+	
+	/**
+	 * Fires a state added event to all registered listeners.
+	 * 
+	 * @param state  the state that was added
+	 * @param value  the value associated with the state
+	 */
+	protected void fireStateAdded(S state, V value) {
+		if(isUpdating()) {
+			markUpdated(size()-1);
+			return;
+		}
+		if(!hasBreadcrumbListeners()) return;
+		// states are always added at the top
+		fireStateAdded(size()-1, state, value);
+	}
+	
+	/**
+	 * Fires a state added event to all registered listeners.
+	 * 
+	 * @param index  the index at which the state was added, no event is
+	 *               fired if less than 0
+	 * @param state  the state that was added
+	 * @param value  the value associated with the state
+	 */
+	protected void fireStateAdded(int index, S state, V value) {
+		if(isUpdating()) {
+			markUpdated(index);
+			return;
+		}
+		if(index < 0 || !hasBreadcrumbListeners()) return;
+		fireBreadcrumbEvent(new BreadcrumbEvent<>(source, state, value, index, BreadcrumbEventType.STATE_ADDED));
+	}
+
+}
@@ -18,24 +18,43 @@ package ca.phon.ui.jbreadcrumb;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.Comparator;
+import java.util.EmptyStackException;
+import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
 import java.util.Stack;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
 
-import ca.phon.ui.jbreadcrumb.BreadcrumbEvent.BreadcrumbEventType;
+import ca.phon.ui.jbreadcrumb.DefaultBreadcrumbModel.EvictionPolicy;
 
 /**
  * A Breadcrumb maintains a linear navigation history.
  * 
+ * <p>This class is an adapter which exposes a {@link DefaultBreadcrumbModel}
+ * through the {@link Stack} API for compatibility.  Operations which append
+ * to or remove from the top of the stack are forwarded to the model; other
+ * structural modifications would bypass state values and events and throw
+ * an {@link UnsupportedOperationException}.  New code should use
+ * {@link BreadcrumbModel} directly.</p>
+ * 
  * @param <S>  the type of state
  * @param <V>  the type of value associated with a state 
  */
-public class Breadcrumb<S, V> extends Stack<S> { 
+public class Breadcrumb<S, V> extends Stack<S> implements BreadcrumbModel<S, V> { 
 
-	private static final long serialVersionUID = 5763249273383818764L;
+	private static final long serialVersionUID = -2107862207587126423L;
 
-	/** The values stack */
-	private LinkedHashMap<S, V> valueMap = new LinkedHashMap<>();
+	/** The model holding states and values */
+	private DefaultBreadcrumbModel<S, V> model = new DefaultBreadcrumbModel<>(this);
 
 	/**
 	 * Creates a new empty Breadcrumb.
@@ -44,56 +63,32 @@ public class Breadcrumb<S, V> extends Stack<S> {
 		super();
 	}
 	
-	/**
-	 * Gets whether or not the breadcrumb contains a state.
-	 * 
-	 * @param state  the state to look for
-	 * 
-	 * @return <code>true</code> if the breadcrumb contains the given state,
-	 *         <code>false</code> otherwise
-	 */
+	@Override
 	public boolean containsState(S state) {
-		return super.contains(state);
+		return model.containsState(state);
 	}
 	
-	/**
-	 * Gets the current state of this breadcrumb.
-	 * 
-	 * @return  the current state, or <code>null</code> if no states available
-	 */
+	@Override
 	public S getCurrentState() {
-		return (isEmpty() ? null : super.peek());
+		return model.getCurrentState();
 	}
 
-	/**
-	 * Gets the value associated with the current state of this breadcrumb.
-	 * 
-	 * @return  the current state's value, or <code>null</code> if no states available
-	 */
+	@Override
 	public V getCurrentValue() {
-		return (isEmpty() ? null : valueMap.get(getCurrentState()));
+		return model.getCurrentValue();
 	}
 
-	/**
-	 * Index of given state
-	 * 
-	 * @param state  the state to find
-	 * @return index of state or -1
-	 */
+	@Override
 	public int getIndexOfState(S state) {
-		return super.indexOf(state);
+		return model.getIndexOfState(state);
 	}
 
 	/**
 	 * Empties this breadcrumb.
 	 */
+	@Override
 	public void clear() {
-		if(!isEmpty()) {
-			final S oldState = getCurrentState();
-			super.clear();
-			valueMap.clear();
-			fireStateChanged(oldState, null);
-		}
+		model.clear();
 	}
 
 	/**
@@ -106,156 +101,298 @@ public class Breadcrumb<S, V> extends Stack<S> {
 	 * @throws IndexOutOfBoundsException  if the index is out of range (i.e.,
 	 *                                    {@code index < 0 || index > size()})
 	 */
+	@Override
 	public S peekState(int index) {
-		return super.get(index);
+		return model.peekState(index);
 	}
 
-	/**
-	 * Removes and returns the current state from this breadcrumb.
-	 * 
-	 * @return the removed state and value as an EntrySet, or null if breadcrumb is empty
-	 */
+	@Override
 	public EntrySet<S, V> popState() {
-		EntrySet<S, V> retVal = null;
-		if(!isEmpty()) {
-			S state = super.pop();
-			V value = valueMap.remove(state);
-			
-			final S newState = getCurrentState();
-			fireStateChanged(state, newState);
-			
-			retVal = new EntrySet<>(state, value);
-		}
-		return retVal;
+		return model.popState();
 	}
 
-	/**
-	 * Goes to the given state. If the state is part of this breadcrumb, all
-	 * states following it will be removed.
-	 * 
-	 * @param state  the state to go to
-	 */
+	@Override
 	public void gotoState(S state) {
-		S oldState = getCurrentState();
-		
-		if(!containsState(state)) return;
-		while(!isEmpty() && getCurrentState() != state) valueMap.remove(super.pop());
-		
-		fireStateChanged(oldState, state);
+		model.gotoState(state);
 	}
 
-	/**
-	 * Sets the complete state of the breadcrumb to a given list of
-	 * state/value pairs.
-	 * 
-	 * @param states  the new set of states
-	 */
+	@Override
+	public void gotoIndex(int index) {
+		model.gotoIndex(index);
+	}
+
+	@Override
 	public void set(List<EntrySet<S, V>> states) {
-		final S oldState = getCurrentState();
+		model.set(states);
+	}
 
-		clear();
+	@Override
+	public void addState(final S state) {
+		model.addState(state);
+	}
 
-		for(EntrySet<S, V> state : states) {
-			super.add(state.getState());
-			valueMap.put(state.getState(), state.getValue());
-			fireStateAdded(state.getState(), state.getValue());
-		}
+	@Override
+	public void addState(S state, V value) {
+		model.addState(state, value);
+	}
 
-		fireStateChanged(oldState, getCurrentState());
+	@Override
+	public List<S> getStates() {
+		return model.getStates();
 	}
 
+	@Override
+	public Collection<V> getValues() {
+		return model.getValues();
+	}
+	
+	@Override
+	public V getValue(S state) {
+		return model.getValue(state);
+	}
+	
+	@Override
+	public V getValueIfPresent(S state) {
+		return model.getValueIfPresent(state);
+	}
+	
+	@Override
+	public V getValueAt(int index) {
+		return model.getValueAt(index);
+	}
+	
+	@Override
+	public V getValueIfPresentAt(int index) {
+		return model.getValueIfPresentAt(index);
+	}
+	
+	@Override
+	public void setValueAt(int index, V value) {
+		model.setValueAt(index, value);
+	}
+	
+	@Override
+	public void setValue(S state, V value) {
+		model.setValue(state, value);
+	}
+	
 	/**
-	 * Append the given state to this breadcrumb with a <code>null</code> value.
+	 * Sets a function used to load values on demand.
+	 * 
+	 * @param valueLoader  loads the value of a state, <code>null</code> to store values
+	 * @param valueCache  cache for loaded values
 	 * 
-	 * @param state  the state
+	 * @throws IllegalArgumentException  if a state occurs more than once
+	 *                                   with different values
+	 * 
+	 * @see DefaultBreadcrumbModel#setValueLoader(Function, BreadcrumbValueCache)
 	 */
-	public void addState(final S state) {
-		addState(state, null);
+	public void setValueLoader(Function<? super S, ? extends V> valueLoader, BreadcrumbValueCache<S, V> valueCache) {
+		model.setValueLoader(valueLoader, valueCache);
 	}
 
+	@Override
+	public void beginUpdate() {
+		model.beginUpdate();
+	}
+	
+	@Override
+	public void endUpdate() {
+		model.endUpdate();
+	}
+	
+	@Override
+	public boolean isUpdating() {
+		return model.isUpdating();
+	}
+	
 	/**
-	 * Append the given state/value pair to this breadcrumb.
+	 * Takes an immutable snapshot of the states and values of this
+	 * breadcrumb.
 	 * 
-	 * @param state  the state
-	 * @param value  the value to associate with the given state
+	 * @return the snapshot
+	 * 
+	 * @see DefaultBreadcrumbModel#snapshot()
 	 */
-	public void addState(S state, V value) {
-		final S oldState = getCurrentState();
-		super.add(state);
-		valueMap.put(state, value);
-		fireStateAdded(state, value);
-		fireStateChanged(oldState, state);
+	public BreadcrumbSnapshot<S, V> snapshot() {
+		return model.snapshot();
 	}
-
+	
 	/**
-	 * Gets the set of states as an immutable list.
+	 * Restores the states and values of a snapshot.
 	 * 
-	 * @return the list of states
+	 * @param snapshot  the snapshot to restore
+	 * 
+	 * @see DefaultBreadcrumbModel#restore(BreadcrumbSnapshot)
 	 */
-	public List<S> getStates() {
-		return Collections.unmodifiableList(this);
+	public void restore(BreadcrumbSnapshot<S, V> snapshot) {
+		model.restore(snapshot);
 	}
-
+	
 	/**
-	 * Gets the set of values as an immutable list.
+	 * Gets the maximum number of states in this breadcrumb.
 	 * 
-	 * @return the list of values
+	 * @return the maximum depth, 0 if unbounded
 	 */
-	public Collection<V> getValues() {
-		return Collections.unmodifiableCollection(valueMap.values());
+	public int getMaximumDepth() {
+		return model.getMaximumDepth();
 	}
 	
 	/**
-	 * Get value for given state.
+	 * Sets the maximum number of states in this breadcrumb.
 	 * 
-	 * @param state  the state to get the value for
-	 * @return the value associated with the state
+	 * @param maximumDepth  the maximum depth, 0 for unbounded
+	 * 
+	 * @see DefaultBreadcrumbModel#setMaximumDepth(int)
 	 */
-	public V getValue(S state) {
-		return valueMap.get(state);
+	public void setMaximumDepth(int maximumDepth) {
+		model.setMaximumDepth(maximumDepth);
 	}
 	
 	/**
-	 * Set value for given state.  The state must already exist.
+	 * Gets the policy used to evict states when the maximum depth is reached.
 	 * 
-	 * @param state  the state to set the value for
-	 * @param value  the value to set
+	 * @return the eviction policy
 	 */
-	public void setValue(S state, V value) {
-		if(containsState(state))
-			valueMap.put(state, value);
+	public EvictionPolicy getEvictionPolicy() {
+		return model.getEvictionPolicy();
 	}
-
-	//
-	// Listeners
-	//
-
+	
 	/**
-	 * List of breadcrumb listeners
+	 * Sets the policy used to evict states when the maximum depth is reached.
+	 * 
+	 * @param evictionPolicy  the eviction policy
 	 */
-	private ArrayList<BreadcrumbListener<S, V>> listeners = new ArrayList<BreadcrumbListener<S, V>>();
-
+	public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+		model.setEvictionPolicy(evictionPolicy);
+	}
+	
 	/**
-	 * Adds a breadcrumb listener to this breadcrumb.
+	 * Gets the maximum number of states kept in the forward history.
 	 * 
-	 * @param listener  the listener to add
+	 * @return the maximum number of entries, 0 if forward history is disabled
 	 */
+	public int getForwardHistoryLimit() {
+		return model.getForwardHistoryLimit();
+	}
+	
+	/**
+	 * Sets the maximum number of states kept in the forward history.
+	 * 
+	 * @param forwardHistoryLimit  the maximum number of entries, 0 to
+	 *                             disable forward history
+	 * 
+	 * @see DefaultBreadcrumbModel#setForwardHistoryLimit(int)
+	 */
+	public void setForwardHistoryLimit(int forwardHistoryLimit) {
+		model.setForwardHistoryLimit(forwardHistoryLimit);
+	}
+	
+	/**
+	 * Gets the maximum estimated size of values kept in the forward history.
+	 * 
+	 * @return the maximum size in bytes, 0 if unbounded
+	 */
+	public long getForwardHistoryByteLimit() {
+		return model.getForwardHistoryByteLimit();
+	}
+	
+	/**
+	 * Sets the maximum estimated size of values kept in the forward history.
+	 * 
+	 * @param forwardHistoryByteLimit  the maximum size in bytes, 0 for unbounded
+	 * 
+	 * @see DefaultBreadcrumbModel#setForwardHistoryByteLimit(long)
+	 */
+	public void setForwardHistoryByteLimit(long forwardHistoryByteLimit) {
+		model.setForwardHistoryByteLimit(forwardHistoryByteLimit);
+	}
+	
+	/**
+	 * Sets the function used to estimate the size of values in the
+	 * forward history.
+	 * 
+	 * @param valueSizeEstimator  the value size estimator, may be <code>null</code>
+	 */
+	public void setValueSizeEstimator(ToLongFunction<? super V> valueSizeEstimator) {
+		model.setValueSizeEstimator(valueSizeEstimator);
+	}
+	
+	/**
+	 * Sets whether values are kept in the forward history.
+	 * 
+	 * @param retainForwardValues  <code>true</code> to keep values
+	 */
+	public void setRetainForwardValues(boolean retainForwardValues) {
+		model.setRetainForwardValues(retainForwardValues);
+	}
+	
+	/**
+	 * Gets the states in the forward history.
+	 * 
+	 * @return the forward states, the next state is first
+	 */
+	public List<S> getForwardStates() {
+		return model.getForwardStates();
+	}
+	
+	/**
+	 * Gets whether {@link #goBack()} will change the current state.
+	 * 
+	 * @return <code>true</code> if there is a state before the current state
+	 */
+	public boolean canGoBack() {
+		return model.canGoBack();
+	}
+	
+	/**
+	 * Gets whether {@link #goForward()} will change the current state.
+	 * 
+	 * @return <code>true</code> if the forward history is not empty
+	 */
+	public boolean canGoForward() {
+		return model.canGoForward();
+	}
+	
+	/**
+	 * Moves the current state to the forward history.
+	 * 
+	 * @return <code>true</code> if the current state changed
+	 */
+	public boolean goBack() {
+		return model.goBack();
+	}
+	
+	/**
+	 * Adds the first state of the forward history back onto the breadcrumb.
+	 * 
+	 * @return <code>true</code> if the current state changed
+	 */
+	public boolean goForward() {
+		return model.goForward();
+	}
+
+	//
+	// Listeners
+	//
+
+	@Override
 	public void addBreadcrumbListener(BreadcrumbListener<S, V> listener) {
-		synchronized(listeners) {
-			if(listener != null && !listeners.contains(listener))
-				listeners.add(listener);
-		}
+		model.addBreadcrumbListener(listener);
+	}
+
+	@Override
+	public void removeBreadcrumbListener(BreadcrumbListener<S, V> listener) {
+		model.removeBreadcrumbListener(listener);
 	}
 
 	/**
-	 * Removes a breadcrumb listener from this breadcrumb.
+	 * Gets all breadcrumb listeners registered on this breadcrumb.
 	 * 
-	 * @param listener  the listener to remove
+	 * @return a copy of the registered listeners, or an empty array
 	 */
-	public void removeBreadcrumbListener(BreadcrumbListener<S, V> listener) {
-		synchronized(listeners) {
-			listeners.remove(listener);
-		}
+	public BreadcrumbListener<S, V>[] getBreadcrumbListeners() {
+		return model.getBreadcrumbListeners();
 	}
 
 	/**
@@ -265,16 +402,7 @@ public class Breadcrumb<S, V> extends Stack<S> {
 	 * @param newState  the new current state
 	 */
 	protected void fireStateChanged(S oldState, S newState) {
-		synchronized(listeners) {
-			int stateIdx = getIndexOfState(newState);
-			if(stateIdx >= 0) {
-				final BreadcrumbEvent<S, V> evt = 
-						new BreadcrumbEvent<>(this, newState, valueMap.get(get(stateIdx)), 
-								stateIdx, oldState, valueMap.get(oldState), BreadcrumbEventType.GOTO_STATE);
-				for(BreadcrumbListener<S, V> listener : listeners)
-					listener.breadCrumbEvent(evt);
-			}
-		}
+		model.fireStateChanged(oldState, newState);
 	}
 
 	/**
@@ -284,15 +412,326 @@ public class Breadcrumb<S, V> extends Stack<S> {
 	 * @param value  the value associated with the state
 	 */
 	protected void fireStateAdded(S state, V value) {
-		synchronized(listeners) {
-			int index = getIndexOfState(state);
-			if(index >= 0) {
-				final BreadcrumbEvent<S, V> evt = 
-						new BreadcrumbEvent<>(this, state, value, index, BreadcrumbEventType.STATE_ADDED);
-				for(BreadcrumbListener<S, V> listener : listeners)
-					listener.breadCrumbEvent(evt);
-			}
+		model.fireStateAdded(state, value);
+	}
+	
+	//
+	// Stack
+	//
+	
+	@Override
+	public S push(S item) {
+		model.addState(item);
+		return item;
+	}
+	
+	@Override
+	public S pop() {
+		if(model.isEmpty())
+			throw new EmptyStackException();
+		return model.popState().getState();
+	}
+	
+	@Override
+	public S peek() {
+		if(model.isEmpty())
+			throw new EmptyStackException();
+		return model.getCurrentState();
+	}
+	
+	//
+	// Vector/List - read operations are forwarded to the model
+	//
+	
+	@Override
+	public int size() {
+		return model.size();
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return model.isEmpty();
+	}
+	
+	@Override
+	public S get(int index) {
+		return model.peekState(index);
+	}
+	
+	@Override
+	public S elementAt(int index) {
+		return model.peekState(index);
+	}
+	
+	@Override
+	public S firstElement() {
+		if(model.isEmpty())
+			throw new NoSuchElementException();
+		return model.peekState(0);
+	}
+	
+	@Override
+	public S lastElement() {
+		if(model.isEmpty())
+			throw new NoSuchElementException();
+		return model.getCurrentState();
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public boolean contains(Object o) {
+		// the model's index uses equals and hashCode, any object may be looked up
+		return model.containsState((S)o);
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public int indexOf(Object o) {
+		return model.getIndexOfState((S)o);
+	}
+	
+	@Override
+	public int indexOf(Object o, int index) {
+		final int first = indexOf(o);
+		if(first < 0 || first >= index) return first;
+		// a later occurrence may follow the given index
+		final int size = model.size();
+		for(int i = index; i < size; i++) {
+			if(Objects.equals(o, model.peekState(i)))
+				return i;
+		}
+		return -1;
+	}
+	
+	@Override
+	public int lastIndexOf(Object o) {
+		return lastIndexOf(o, model.size() - 1);
+	}
+	
+	@Override
+	public int lastIndexOf(Object o, int index) {
+		if(index >= model.size())
+			throw new IndexOutOfBoundsException(index + " >= " + model.size());
+		final int first = indexOf(o);
+		if(first < 0 || first > index) return -1;
+		for(int i = index; i > first; i--) {
+			if(Objects.equals(o, model.peekState(i)))
+				return i;
 		}
+		return first;
+	}
+	
+	@Override
+	public Object[] toArray() {
+		return model.getStates().toArray();
+	}
+	
+	@Override
+	public <T> T[] toArray(T[] a) {
+		return model.getStates().toArray(a);
+	}
+	
+	@Override
+	public void copyInto(Object[] anArray) {
+		final Object[] states = toArray();
+		System.arraycopy(states, 0, anArray, 0, states.length);
+	}
+	
+	@Override
+	public Enumeration<S> elements() {
+		return Collections.enumeration(model.getStates());
+	}
+	
+	@Override
+	public Iterator<S> iterator() {
+		return model.getStates().iterator();
+	}
+	
+	@Override
+	public ListIterator<S> listIterator() {
+		return model.getStates().listIterator();
+	}
+	
+	@Override
+	public ListIterator<S> listIterator(int index) {
+		return model.getStates().listIterator(index);
+	}
+	
+	@Override
+	public List<S> subList(int fromIndex, int toIndex) {
+		return model.getStates().subList(fromIndex, toIndex);
+	}
+	
+	@Override
+	public Spliterator<S> spliterator() {
+		return model.getStates().spliterator();
+	}
+	
+	@Override
+	public void forEach(Consumer<? super S> action) {
+		model.getStates().forEach(action);
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		return (o == this) || model.getStates().equals(o);
+	}
+	
+	@Override
+	public int hashCode() {
+		return model.getStates().hashCode();
+	}
+	
+	@Override
+	public String toString() {
+		return model.getStates().toString();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>The clone has the states and values of this breadcrumb, its
+	 * maximum depth, eviction policy and forward history settings, and the
+	 * same value loader with a new, empty cache of the same bounds.  Values
+	 * not currently resident are loaded again by the clone when needed.
+	 * Listeners and the states in the forward history are not copied.</p>
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public Object clone() {
+		final Breadcrumb<S, V> retVal = (Breadcrumb<S, V>)super.clone();
+		retVal.model = new DefaultBreadcrumbModel<>(retVal);
+		retVal.model.setMaximumDepth(model.getMaximumDepth());
+		retVal.model.setEvictionPolicy(model.getEvictionPolicy());
+		retVal.model.setForwardHistoryLimit(model.getForwardHistoryLimit());
+		retVal.model.setForwardHistoryByteLimit(model.getForwardHistoryByteLimit());
+		retVal.model.setValueSizeEstimator(model.getValueSizeEstimator());
+		retVal.model.setRetainForwardValues(model.isRetainForwardValues());
+		
+		final BreadcrumbValueCache<S, V> valueCache = model.getValueCache();
+		if(model.getValueLoader() != null) {
+			retVal.model.setValueLoader(model.getValueLoader(), new BreadcrumbValueCache<>(valueCache.getMaximumSize(),
+					valueCache.getMaximumWeight(), valueCache.getWeigher(), valueCache.isSoftValues()));
+		}
+		
+		// copy by position, states may occur more than once with different values
+		final List<EntrySet<S, V>> entries = new ArrayList<>();
+		for(int i = 0; i < model.size(); i++)
+			entries.add(new EntrySet<>(model.peekState(i), model.getValueIfPresentAt(i)));
+		retVal.model.set(entries);
+		
+		return retVal;
+	}
+	
+	//
+	// Vector/List - modifications at the top of the stack are forwarded to the model
+	//
+	
+	@Override
+	public boolean add(S e) {
+		model.addState(e);
+		return true;
+	}
+	
+	@Override
+	public void addElement(S obj) {
+		model.addState(obj);
+	}
+	
+	@Override
+	public boolean addAll(Collection<? extends S> c) {
+		for(S state : c)
+			model.addState(state);
+		return !c.isEmpty();
+	}
+	
+	@Override
+	public void removeAllElements() {
+		model.clear();
+	}
+	
+	//
+	// Vector/List - other modifications are not supported
+	//
+	
+	@Override
+	public void add(int index, S element) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public boolean addAll(int index, Collection<? extends S> c) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public void insertElementAt(S obj, int index) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public S set(int index, S element) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public void setElementAt(S obj, int index) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public void setSize(int newSize) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public S remove(int index) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public boolean remove(Object o) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public void removeElementAt(int index) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public boolean removeElement(Object obj) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public boolean removeIf(Predicate<? super S> filter) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public void replaceAll(UnaryOperator<S> operator) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public void sort(Comparator<? super S> c) {
+		throw new UnsupportedOperationException();
 	}
 	
 	/**
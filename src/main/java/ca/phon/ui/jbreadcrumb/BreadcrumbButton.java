@@ -15,14 +15,13 @@
  */
 package ca.phon.ui.jbreadcrumb;
 
-import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Insets;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
-import java.awt.font.LineMetrics;
+import java.awt.font.FontRenderContext;
 import java.awt.geom.Rectangle2D;
 
 import javax.swing.JButton;
@@ -36,6 +35,9 @@ import javax.swing.UIManager;
 public class BreadcrumbButton extends JButton {
 
 	private static final long serialVersionUID = -1736113253724309947L;
+	
+	/** Measured text, reused while text, font and render context are unchanged */
+	private transient BreadcrumbLabelCache.Label textLabel;
 
 	/**
 	 * Creates a new BreadcrumbButton.
@@ -68,32 +70,33 @@ public class BreadcrumbButton extends JButton {
 		} else {
 			g2.setColor(UIManager.getColor("Button.disabledForeground"));
 		}
-		Point p = centerTextInRectangle(g2, getText(),
+		final FontRenderContext frc = g2.getFontRenderContext();
+		if(textLabel == null || !textLabel.matches(getText(), g2.getFont(), frc))
+			textLabel = BreadcrumbLabelCache.Label.create(getText(), g2.getFont(), frc);
+		Point p = centerTextInRectangle(textLabel,
 				new Rectangle((int)rect.getX(), 0, (int)rect.getWidth(), (int)getHeight()));
-		g2.drawString(getText(), p.x, p.y);
+		textLabel.draw(g2, p.x, p.y);
 	}
 	
 	/**
 	 * Returns the point at which to draw a string so that it appears
 	 * center-aligned within a given rectangle.
 	 * 
-	 * @param g  the graphics context to work with
-	 * @param txt  the string
+	 * @param label  the measured string
 	 * @param rect  the rectangle to place the string in
 	 * 
 	 * @return the point at which text should be drawn so that it is aligned
 	 *         in the center of the given rectangle.
 	 */
-	private Point centerTextInRectangle(Graphics g, String txt, Rectangle rect) {
-		return placeTextInRectangle(g, txt, rect, SwingConstants.CENTER, SwingConstants.CENTER);
+	private Point centerTextInRectangle(BreadcrumbLabelCache.Label label, Rectangle rect) {
+		return placeTextInRectangle(label, rect, SwingConstants.CENTER, SwingConstants.CENTER);
 	}
 
 	/**
 	 * Returns the point at which to draw a string so that it appears aligned
 	 * within a given rectangle.
 	 * 
-	 * @param g  the graphics context to work with
-	 * @param txt  the string
+	 * @param label  the measured string
 	 * @param rect  the rectangle to place the string in
 	 * 
 	 * @param horizontalAlignment  the horizontal alignment; one of
@@ -107,37 +110,35 @@ public class BreadcrumbButton extends JButton {
 	 * @return the point at which text should be drawn so that it is aligned
 	 *         appropriately with the given rectangle.
 	 */
-	private Point placeTextInRectangle(Graphics g,
-	                                         String txt,
+	private Point placeTextInRectangle(BreadcrumbLabelCache.Label label,
 	                                         Rectangle rect,
 	                                         int horizontalAlignment,
 	                                         int verticalAlignment) 
 	{
-		final FontMetrics fm = g.getFontMetrics();
-		final LineMetrics lm = fm.getLineMetrics(txt, g);
-		final Rectangle2D r = fm.getStringBounds(txt, g);
+		final double width = label.getWidth();
+		final double height = label.getHeight();
 
 		int x = rect.x;
 		int y = rect.y;
 
 		switch(horizontalAlignment) {
 		case SwingConstants.CENTER:
-			x += (rect.width - r.getWidth()) * 0.5;
+			x += (rect.width - width) * 0.5;
 			break;
 		case SwingConstants.RIGHT:
-			x += rect.width - r.getWidth();
+			x += rect.width - width;
 			break;
 		}
 
 		switch(verticalAlignment) {
 		case SwingConstants.TOP:
-			y += lm.getAscent();
+			y += label.getAscent();
 			break;
 		case SwingConstants.CENTER:
-			y += (rect.height - r.getHeight()) * 0.5 + lm.getAscent();
+			y += (rect.height - height) * 0.5 + label.getAscent();
 			break;
 		case SwingConstants.BOTTOM:
-			y += rect.height - lm.getDescent();
+			y += rect.height - label.getDescent();
 			break;
 		}
 
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes and decodes states or values for a {@link BreadcrumbStore}.
+ * Objects are written to a {@link DataOutput} and read back from a
+ * (memory-mapped) {@link ByteBuffer}.  Codecs are never given
+ * <code>null</code> objects.
+ * 
+ * @param <T>  the type of object
+ */
+public interface BreadcrumbCodec<T> {
+	
+	/**
+	 * Codec for strings, stored as a length followed by UTF-8 bytes.
+	 */
+	public final static BreadcrumbCodec<String> STRING = new BreadcrumbCodec<String>() {
+		
+		@Override
+		public void write(String value, DataOutput out) throws IOException {
+			final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+		
+		@Override
+		public String read(ByteBuffer buffer) throws IOException {
+			final int length = buffer.getInt();
+			if(length < 0 || length > buffer.remaining())
+				throw new IOException("Invalid string length: " + length);
+			final byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	
+	};
+	
+	/**
+	 * Codec for integers.
+	 */
+	public final static BreadcrumbCodec<Integer> INTEGER = new BreadcrumbCodec<Integer>() {
+		
+		@Override
+		public void write(Integer value, DataOutput out) throws IOException {
+			out.writeInt(value);
+		}
+		
+		@Override
+		public Integer read(ByteBuffer buffer) throws IOException {
+			return buffer.getInt();
+		}
+	
+	};
+	
+	/**
+	 * Codec for longs.
+	 */
+	public final static BreadcrumbCodec<Long> LONG = new BreadcrumbCodec<Long>() {
+		
+		@Override
+		public void write(Long value, DataOutput out) throws IOException {
+			out.writeLong(value);
+		}
+		
+		@Override
+		public Long read(ByteBuffer buffer) throws IOException {
+			return buffer.getLong();
+		}
+	
+	};
+	
+	/**
+	 * Writes an object.
+	 * 
+	 * @param value  the object, never <code>null</code>
+	 * @param out  the output
+	 * 
+	 * @throws IOException  if the object could not be written
+	 */
+	public void write(T value, DataOutput out) throws IOException;
+	
+	/**
+	 * Reads an object written by {@link #write(Object, DataOutput)}.  The
+	 * buffer is positioned at the start of the object and must be left
+	 * positioned after it.
+	 * 
+	 * @param buffer  the buffer
+	 * 
+	 * @return the object
+	 * 
+	 * @throws IOException  if the object could not be read
+	 */
+	public T read(ByteBuffer buffer) throws IOException;
+
+}
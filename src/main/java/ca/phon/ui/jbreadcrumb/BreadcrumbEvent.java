@@ -16,7 +16,9 @@
 package ca.phon.ui.jbreadcrumb;
 
 /**
- * State changes for a {@link Breadcrumb}
+ * State changes for a {@link BreadcrumbModel}.  A single instance is
+ * shared by all listeners, events must not be modified once fired.  The
+ * setters are only kept for compatibility.
  * 
  * @param <S>  the type of state
  * @param <V>  the type of value
@@ -30,10 +32,20 @@ public class BreadcrumbEvent<S, V> {
 		/** A new state was added to the breadcrumb */
 		STATE_ADDED,
 		/** The breadcrumb navigated to an existing state */
-		GOTO_STATE
+		GOTO_STATE,
+		/** A range of states was removed from the top of the breadcrumb */
+		STATE_REMOVED,
+		/** The breadcrumb was modified by a batch update, states in the event's range may have changed */
+		STATES_CHANGED,
+		/** A state was evicted from a breadcrumb at maximum depth, the event's state and value are those evicted */
+		STATE_EVICTED,
+		/** The value of the states in the event's range changed, the event's state and value are the modified state and its new value */
+		VALUE_CHANGED,
+		/** All states were removed, the event's range covers the removed states */
+		CLEARED
 	};
 
-	private Breadcrumb<S, V> breadcrumb;
+	private BreadcrumbModel<S, V> breadcrumb;
 	
 	private S state;
 	
@@ -45,17 +57,31 @@ public class BreadcrumbEvent<S, V> {
 	private V value;
 	
 	/**
-	 * Used for GOTO_STATE events, <code>null</code> otherwise
+	 * Used for GOTO_STATE and VALUE_CHANGED events, <code>null</code> otherwise
 	 */
-	private V oldValue; 
+	private V oldValue;
 
 	private int stateIndex;
 	
+	/**
+	 * First index of the affected range, same as stateIndex for single state events
+	 */
+	private int firstIndex;
+	
+	/**
+	 * Last index of the affected range, same as stateIndex for single state events
+	 */
+	private int lastIndex;
+	
 	private BreadcrumbEventType eventType = BreadcrumbEventType.GOTO_STATE;
 	
 	/**
 	 * Creates a new empty BreadcrumbEvent.
+	 * 
+	 * @deprecated events are created by the model firing them, use
+	 *             {@link #BreadcrumbEvent(BreadcrumbModel, Object, Object, int, BreadcrumbEventType)}
 	 */
+	@Deprecated
 	public BreadcrumbEvent() {
 		super();
 	}
@@ -69,7 +95,7 @@ public class BreadcrumbEvent<S, V> {
 	 * @param stateIndex  the index of the current state
 	 * @param eventType  the type of event
 	 */
-	public BreadcrumbEvent(Breadcrumb<S, V> breadcrumb, S state, V value, int stateIndex,
+	public BreadcrumbEvent(BreadcrumbModel<S, V> breadcrumb, S state, V value, int stateIndex,
 			BreadcrumbEventType eventType) {
 		this(breadcrumb, state, value, stateIndex, null, null, eventType);
 	}
@@ -85,8 +111,26 @@ public class BreadcrumbEvent<S, V> {
 	 * @param oldValue  the previous value (for GOTO_STATE events)
 	 * @param eventType  the type of event
 	 */
-	public BreadcrumbEvent(Breadcrumb<S, V> breadcrumb, S state, V value, int stateIndex, S oldState, V oldValue, 
+	public BreadcrumbEvent(BreadcrumbModel<S, V> breadcrumb, S state, V value, int stateIndex, S oldState, V oldValue, 
 			BreadcrumbEventType eventType) {
+		this(breadcrumb, state, value, stateIndex, oldState, oldValue, stateIndex, stateIndex, eventType);
+	}
+	
+	/**
+	 * Creates a new BreadcrumbEvent for a range of states.
+	 * 
+	 * @param breadcrumb  the breadcrumb that fired the event
+	 * @param state  the current state
+	 * @param value  the current value
+	 * @param stateIndex  the index of the current state
+	 * @param oldState  the previous state
+	 * @param oldValue  the previous value
+	 * @param firstIndex  the first index of the affected range
+	 * @param lastIndex  the last index (inclusive) of the affected range
+	 * @param eventType  the type of event
+	 */
+	public BreadcrumbEvent(BreadcrumbModel<S, V> breadcrumb, S state, V value, int stateIndex, S oldState, V oldValue,
+			int firstIndex, int lastIndex, BreadcrumbEventType eventType) {
 		super();
 		this.breadcrumb = breadcrumb;
 		this.state = state;
@@ -94,6 +138,8 @@ public class BreadcrumbEvent<S, V> {
 		this.stateIndex = stateIndex;
 		this.oldState = oldState;
 		this.oldValue = oldValue;
+		this.firstIndex = firstIndex;
+		this.lastIndex = lastIndex;
 		this.eventType = eventType;
 	}
 
@@ -102,7 +148,7 @@ public class BreadcrumbEvent<S, V> {
 	 * 
 	 * @return the breadcrumb
 	 */
-	public Breadcrumb<S, V> getBreadcrumb() {
+	public BreadcrumbModel<S, V> getBreadcrumb() {
 		return breadcrumb;
 	}
 
@@ -110,7 +156,10 @@ public class BreadcrumbEvent<S, V> {
 	 * Sets the breadcrumb that fired this event.
 	 * 
 	 * @param breadcrumb  the breadcrumb to set
+	 * 
+	 * @deprecated events are shared by all listeners and must not be modified
 	 */
+	@Deprecated
 	public void setBreadcrumb(Breadcrumb<S, V> breadcrumb) {
 		this.breadcrumb = breadcrumb;
 	}
@@ -128,7 +177,10 @@ public class BreadcrumbEvent<S, V> {
 	 * Sets the current state.
 	 * 
 	 * @param state  the state to set
+	 * 
+	 * @deprecated events are shared by all listeners and must not be modified
 	 */
+	@Deprecated
 	public void setState(S state) {
 		this.state = state;
 	}
@@ -146,7 +198,10 @@ public class BreadcrumbEvent<S, V> {
 	 * Sets the current value.
 	 * 
 	 * @param value  the value to set
+	 * 
+	 * @deprecated events are shared by all listeners and must not be modified
 	 */
+	@Deprecated
 	public void setValue(V value) {
 		this.value = value;
 	}
@@ -161,14 +216,42 @@ public class BreadcrumbEvent<S, V> {
 	}
 
 	/**
-	 * Sets the index of the current state.
+	 * Sets the index of the current state.  The range of a single state
+	 * event is moved with it.
 	 * 
 	 * @param stateIndex  the state index to set
+	 * 
+	 * @deprecated events are shared by all listeners and must not be modified
 	 */
+	@Deprecated
 	public void setStateIndex(int stateIndex) {
+		if(firstIndex == this.stateIndex && lastIndex == this.stateIndex) {
+			firstIndex = stateIndex;
+			lastIndex = stateIndex;
+		}
 		this.stateIndex = stateIndex;
 	}
 
+	/**
+	 * Gets the first index of the range affected by this event.  For
+	 * STATE_REMOVED events this is the index of the first removed state.
+	 * 
+	 * @return the first index
+	 */
+	public int getFirstIndex() {
+		return firstIndex;
+	}
+
+	/**
+	 * Gets the last index (inclusive) of the range affected by this event.
+	 * For STATE_REMOVED events this is the index of the last removed state.
+	 * 
+	 * @return the last index
+	 */
+	public int getLastIndex() {
+		return lastIndex;
+	}
+
 	/**
 	 * Gets the previous state (for GOTO_STATE events).
 	 * 
@@ -182,7 +265,10 @@ public class BreadcrumbEvent<S, V> {
 	 * Sets the previous state.
 	 * 
 	 * @param oldState  the old state to set
+	 * 
+	 * @deprecated events are shared by all listeners and must not be modified
 	 */
+	@Deprecated
 	public void setOldState(S oldState) {
 		this.oldState = oldState;
 	}
@@ -200,7 +286,10 @@ public class BreadcrumbEvent<S, V> {
 	 * Sets the previous value.
 	 * 
 	 * @param oldValue  the old value to set
+	 * 
+	 * @deprecated events are shared by all listeners and must not be modified
 	 */
+	@Deprecated
 	public void setOldValue(V oldValue) {
 		this.oldValue = oldValue;
 	}
@@ -218,7 +307,10 @@ public class BreadcrumbEvent<S, V> {
 	 * Sets the type of this event.
 	 * 
 	 * @param eventType  the event type to set
+	 * 
+	 * @deprecated events are shared by all listeners and must not be modified
 	 */
+	@Deprecated
 	public void setEventType(BreadcrumbEventType eventType) {
 		this.eventType = eventType;
 	}
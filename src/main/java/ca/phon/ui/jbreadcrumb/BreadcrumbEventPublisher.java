@@ -0,0 +1,394 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link Flow.Publisher} of the events of a {@link BreadcrumbModel}.
+ * Each subscriber has a bounded buffer; events are delivered, in order,
+ * using the publisher's executor as the subscriber requests them.  When
+ * a subscriber's buffer is full, new events are handled according to its
+ * {@link OverflowPolicy}.
+ * 
+ * <p>The publisher registers itself as a listener when created and stops
+ * listening when {@link #close()} is called, which completes all
+ * subscriptions once their buffered events are delivered.</p>
+ * 
+ * @param <S>  the type of state
+ * @param <V>  the type of value associated with a state
+ * 
+ * @see BreadcrumbModel#createEventPublisher(Executor)
+ */
+public class BreadcrumbEventPublisher<S, V> implements Flow.Publisher<BreadcrumbEvent<S, V>>, AutoCloseable {
+	
+	/**
+	 * Policy applied when an event is published to a subscriber whose
+	 * buffer is full.
+	 */
+	public static enum OverflowPolicy {
+		/** Discard the oldest buffered event */
+		DROP_OLDEST,
+		/** Keep only the latest event, the buffer size is ignored */
+		LATEST_ONLY,
+		/**
+		 * Block the thread firing the event until there is room in the
+		 * buffer.  Should not be used if events are fired on the event
+		 * dispatch thread and the subscriber's executor also uses it.
+		 */
+		BLOCK
+	};
+	
+	private final BreadcrumbModel<S, V> model;
+	
+	private final Executor executor;
+	
+	private final int defaultBufferSize;
+	
+	private final OverflowPolicy defaultOverflowPolicy;
+	
+	private final CopyOnWriteArrayList<BufferedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+	
+	private volatile boolean closed = false;
+	
+	private final BreadcrumbListener<S, V> listener = (evt) -> {
+		for(BufferedSubscription subscription : subscriptions)
+			subscription.offer(evt);
+	};
+	
+	/**
+	 * Creates a new publisher for the events of the given model, using a
+	 * buffer of {@link Flow#defaultBufferSize()} events and dropping the
+	 * oldest event on overflow.
+	 * 
+	 * @param model  the breadcrumb model
+	 * @param executor  the executor used to deliver events
+	 */
+	public BreadcrumbEventPublisher(BreadcrumbModel<S, V> model, Executor executor) {
+		this(model, executor, Flow.defaultBufferSize(), OverflowPolicy.DROP_OLDEST);
+	}
+	
+	/**
+	 * Creates a new publisher for the events of the given model.
+	 * 
+	 * @param model  the breadcrumb model
+	 * @param executor  the executor used to deliver events
+	 * @param bufferSize  the default maximum number of buffered events per subscriber
+	 * @param overflowPolicy  the default overflow policy
+	 * 
+	 * @throws IllegalArgumentException  if bufferSize is not positive
+	 */
+	public BreadcrumbEventPublisher(BreadcrumbModel<S, V> model, Executor executor, int bufferSize, OverflowPolicy overflowPolicy) {
+		super();
+		if(bufferSize <= 0)
+			throw new IllegalArgumentException("Buffer size must be positive");
+		this.model = Objects.requireNonNull(model);
+		this.executor = Objects.requireNonNull(executor);
+		this.defaultBufferSize = bufferSize;
+		this.defaultOverflowPolicy = Objects.requireNonNull(overflowPolicy);
+		
+		model.addBreadcrumbListener(listener);
+	}
+	
+	/**
+	 * Gets the model whose events are published.
+	 * 
+	 * @return the model
+	 */
+	public BreadcrumbModel<S, V> getModel() {
+		return model;
+	}
+	
+	/**
+	 * Gets the executor used to deliver events.
+	 * 
+	 * @return the executor
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+	
+	/**
+	 * Gets the number of current subscribers.
+	 * 
+	 * @return the number of subscribers
+	 */
+	public int getNumberOfSubscribers() {
+		return subscriptions.size();
+	}
+	
+	/**
+	 * Gets whether this publisher has been closed.
+	 * 
+	 * @return <code>true</code> if closed
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>The subscriber uses the publisher's default buffer size and
+	 * overflow policy.</p>
+	 */
+	@Override
+	public void subscribe(Flow.Subscriber<? super BreadcrumbEvent<S, V>> subscriber) {
+		subscribe(subscriber, defaultBufferSize, defaultOverflowPolicy);
+	}
+	
+	/**
+	 * Adds a subscriber with the given buffer size and overflow policy.
+	 * {@link Flow.Subscriber#onSubscribe(Flow.Subscription)} is called
+	 * before this method returns.
+	 * 
+	 * @param subscriber  the subscriber
+	 * @param bufferSize  the maximum number of buffered events
+	 * @param overflowPolicy  the overflow policy
+	 * 
+	 * @throws IllegalArgumentException  if bufferSize is not positive
+	 */
+	public void subscribe(Flow.Subscriber<? super BreadcrumbEvent<S, V>> subscriber, int bufferSize, OverflowPolicy overflowPolicy) {
+		Objects.requireNonNull(subscriber);
+		Objects.requireNonNull(overflowPolicy);
+		if(bufferSize <= 0)
+			throw new IllegalArgumentException("Buffer size must be positive");
+		
+		final BufferedSubscription subscription = new BufferedSubscription(subscriber,
+				(overflowPolicy == OverflowPolicy.LATEST_ONLY ? 1 : bufferSize), overflowPolicy);
+		for(BufferedSubscription existing : subscriptions) {
+			if(existing.subscriber == subscriber) {
+				subscriber.onSubscribe(subscription);
+				subscription.fail(new IllegalStateException("Already subscribed"));
+				return;
+			}
+		}
+		
+		subscriber.onSubscribe(subscription);
+		subscriptions.add(subscription);
+		if(closed)
+			subscription.complete();
+	}
+	
+	/**
+	 * Stops publishing events.  Subscribers receive
+	 * {@link Flow.Subscriber#onComplete()} once their buffered events
+	 * have been delivered.
+	 */
+	@Override
+	public void close() {
+		if(closed) return;
+		closed = true;
+		model.removeBreadcrumbListener(listener);
+		for(BufferedSubscription subscription : subscriptions)
+			subscription.complete();
+	}
+	
+	/**
+	 * Subscription with a bounded event buffer.  Events are delivered by
+	 * a task run on the executor, at most one task runs at a time.
+	 */
+	private final class BufferedSubscription implements Flow.Subscription {
+		
+		private final Flow.Subscriber<? super BreadcrumbEvent<S, V>> subscriber;
+		
+		private final int bufferSize;
+		
+		private final OverflowPolicy overflowPolicy;
+		
+		private final ReentrantLock lock = new ReentrantLock();
+		
+		private final Condition notFull = lock.newCondition();
+		
+		/** Buffered events, guarded by lock */
+		private final ArrayDeque<BreadcrumbEvent<S, V>> buffer = new ArrayDeque<>();
+		
+		/** Number of requested events not yet delivered, guarded by lock */
+		private long demand = 0L;
+		
+		/** Set when the subscription is cancelled or has terminated, guarded by lock */
+		private boolean cancelled = false;
+		
+		/** Set when onComplete should follow the buffered events, guarded by lock */
+		private boolean completing = false;
+		
+		/** Error to deliver, guarded by lock */
+		private Throwable error;
+		
+		/** Set while a delivery task is scheduled or running */
+		private final AtomicBoolean scheduled = new AtomicBoolean(false);
+		
+		BufferedSubscription(Flow.Subscriber<? super BreadcrumbEvent<S, V>> subscriber, int bufferSize, OverflowPolicy overflowPolicy) {
+			this.subscriber = subscriber;
+			this.bufferSize = bufferSize;
+			this.overflowPolicy = overflowPolicy;
+		}
+		
+		void offer(BreadcrumbEvent<S, V> evt) {
+			lock.lock();
+			try {
+				if(cancelled || completing) return;
+				if(buffer.size() >= bufferSize) {
+					if(overflowPolicy == OverflowPolicy.BLOCK) {
+						while(buffer.size() >= bufferSize && !cancelled)
+							notFull.awaitUninterruptibly();
+						if(cancelled) return;
+					} else {
+						buffer.pollFirst();
+					}
+				}
+				buffer.addLast(evt);
+			} finally {
+				lock.unlock();
+			}
+			schedule();
+		}
+		
+		void complete() {
+			lock.lock();
+			try {
+				completing = true;
+			} finally {
+				lock.unlock();
+			}
+			schedule();
+		}
+		
+		void fail(Throwable t) {
+			lock.lock();
+			try {
+				if(error == null)
+					error = t;
+				buffer.clear();
+				notFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+			schedule();
+		}
+		
+		@Override
+		public void request(long n) {
+			if(n <= 0) {
+				fail(new IllegalArgumentException("Non-positive request: " + n));
+				return;
+			}
+			lock.lock();
+			try {
+				demand = (demand + n < 0L ? Long.MAX_VALUE : demand + n);
+			} finally {
+				lock.unlock();
+			}
+			schedule();
+		}
+		
+		@Override
+		public void cancel() {
+			lock.lock();
+			try {
+				cancelled = true;
+				buffer.clear();
+				notFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+			subscriptions.remove(this);
+		}
+		
+		private void schedule() {
+			if(scheduled.compareAndSet(false, true)) {
+				try {
+					executor.execute(this::deliver);
+				} catch (RejectedExecutionException e) {
+					scheduled.set(false);
+					cancel();
+					subscriber.onError(e);
+				}
+			}
+		}
+		
+		/**
+		 * Gets whether the delivery task has work to do.  Must hold lock.
+		 */
+		private boolean hasWork() {
+			return !cancelled
+					&& (error != null || (demand > 0L && !buffer.isEmpty()) || (completing && buffer.isEmpty()));
+		}
+		
+		private void deliver() {
+			try {
+				while(true) {
+					BreadcrumbEvent<S, V> evt = null;
+					Throwable failure = null;
+					boolean done = false;
+					lock.lock();
+					try {
+						if(!hasWork()) break;
+						if(error != null) {
+							failure = error;
+							cancelled = true;
+						} else if(demand > 0L && !buffer.isEmpty()) {
+							evt = buffer.pollFirst();
+							--demand;
+							notFull.signal();
+						} else {
+							cancelled = true;
+							done = true;
+						}
+					} finally {
+						lock.unlock();
+					}
+					
+					if(failure != null) {
+						subscriptions.remove(this);
+						subscriber.onError(failure);
+					} else if(done) {
+						subscriptions.remove(this);
+						subscriber.onComplete();
+					} else {
+						try {
+							subscriber.onNext(evt);
+						} catch (RuntimeException e) {
+							fail(e);
+						}
+					}
+				}
+			} finally {
+				scheduled.set(false);
+			}
+			// work may have arrived after the last check
+			lock.lock();
+			final boolean reschedule;
+			try {
+				reschedule = hasWork();
+			} finally {
+				lock.unlock();
+			}
+			if(reschedule)
+				schedule();
+		}
+	
+	}
+
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+import java.awt.font.TextLayout;
+import java.awt.geom.Rectangle2D;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+/**
+ * Bounded least-recently-used cache of crumb labels.  The cache holds
+ * the text shown for each value and, for each text, font and
+ * {@link FontRenderContext}, a {@link Label} with the measured bounds and
+ * shaped {@link TextLayout} of the text.  Text is therefore converted and
+ * shaped once per crumb rather than on every paint.
+ * 
+ * <p>Text is cached by value identity using weak references, the cache
+ * does not keep values reachable.  A value whose {@link Object#toString()}
+ * changes while cached will show a stale label, such values must be
+ * replaced in the breadcrumb, e.g., using
+ * {@link BreadcrumbModel#setValue(Object, Object)}, rather than
+ * modified.</p>
+ * 
+ * <p>All methods are synchronized.</p>
+ */
+public class BreadcrumbLabelCache {
+	
+	/** Default maximum number of labels */
+	public final static int DEFAULT_MAXIMUM_SIZE = 256;
+	
+	private final int maximumSize;
+	
+	/** Text by weak value identity, least recently used first */
+	private final LinkedHashMap<IdentityKey, String> texts = new LinkedHashMap<>(16, 0.75f, true);
+	
+	/** Queue of keys whose values have been garbage collected */
+	private final ReferenceQueue<Object> collectedValues = new ReferenceQueue<>();
+	
+	/** Labels by text, font and render context, least recently used first */
+	private final LinkedHashMap<Label, Label> labels = new LinkedHashMap<>(16, 0.75f, true);
+	
+	/**
+	 * Creates a new cache holding at most {@link #DEFAULT_MAXIMUM_SIZE} labels.
+	 */
+	public BreadcrumbLabelCache() {
+		this(DEFAULT_MAXIMUM_SIZE);
+	}
+	
+	/**
+	 * Creates a new cache.
+	 * 
+	 * @param maximumSize  the maximum number of labels, and of value texts
+	 * 
+	 * @throws IllegalArgumentException  if maximumSize is not positive
+	 */
+	public BreadcrumbLabelCache(int maximumSize) {
+		super();
+		if(maximumSize <= 0)
+			throw new IllegalArgumentException("Maximum size must be positive");
+		this.maximumSize = maximumSize;
+	}
+	
+	/**
+	 * Gets the maximum number of labels.
+	 * 
+	 * @return the maximum size
+	 */
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+	
+	/**
+	 * Gets the text for a value, as returned by {@link String#valueOf(Object)}.
+	 * 
+	 * @param value  the value
+	 * 
+	 * @return the text of the value
+	 */
+	public synchronized String getText(Object value) {
+		if(value == null || value instanceof String) return String.valueOf(value);
+		
+		expungeCollectedValues();
+		String retVal = texts.get(new IdentityKey(value, null));
+		if(retVal == null) {
+			retVal = value.toString();
+			texts.put(new IdentityKey(value, collectedValues), retVal);
+			trim(texts.values().iterator(), texts.size());
+		}
+		return retVal;
+	}
+	
+	/**
+	 * Gets the label for the given text, shaping the text if it is not
+	 * cached.
+	 * 
+	 * @param text  the text
+	 * @param font  the font
+	 * @param frc  the font render context
+	 * 
+	 * @return the label
+	 */
+	public synchronized Label getLabel(String text, Font font, FontRenderContext frc) {
+		final Label key = new Label(text, font, frc);
+		Label retVal = labels.get(key);
+		if(retVal == null) {
+			retVal = key;
+			retVal.measure();
+			labels.put(retVal, retVal);
+			trim(labels.values().iterator(), labels.size());
+		}
+		return retVal;
+	}
+	
+	/**
+	 * Gets the number of cached labels.
+	 * 
+	 * @return the number of labels
+	 */
+	public synchronized int size() {
+		return labels.size();
+	}
+	
+	/**
+	 * Removes all labels and value texts.
+	 */
+	public synchronized void clear() {
+		texts.clear();
+		labels.clear();
+		while(collectedValues.poll() != null);
+	}
+	
+	/**
+	 * Removes the text of values which have been garbage collected.
+	 */
+	private void expungeCollectedValues() {
+		Reference<?> ref = null;
+		while((ref = collectedValues.poll()) != null)
+			texts.remove(ref);
+	}
+	
+	/**
+	 * Evicts least recently used entries until the cache is within bounds.
+	 */
+	private void trim(Iterator<?> itr, int size) {
+		for(int i = size; i > maximumSize; i--) {
+			itr.next();
+			itr.remove();
+		}
+	}
+	
+	/**
+	 * Text measured and shaped for a font and render context.  Labels are
+	 * immutable once measured.
+	 */
+	public final static class Label {
+		
+		private final String text;
+		
+		private final Font font;
+		
+		private final FontRenderContext frc;
+		
+		/** Shaped text, <code>null</code> for empty text */
+		private TextLayout layout;
+		
+		private Rectangle2D bounds;
+		
+		private float ascent;
+		
+		private float descent;
+		
+		/**
+		 * Creates a new label, the label must be measured before use.
+		 */
+		Label(String text, Font font, FontRenderContext frc) {
+			this.text = Objects.requireNonNull(text);
+			this.font = Objects.requireNonNull(font);
+			this.frc = Objects.requireNonNull(frc);
+		}
+		
+		/**
+		 * Creates and measures a label which is not cached.
+		 * 
+		 * @param text  the text
+		 * @param font  the font
+		 * @param frc  the font render context
+		 * 
+		 * @return the measured label
+		 */
+		static Label create(String text, Font font, FontRenderContext frc) {
+			final Label retVal = new Label(text, font, frc);
+			retVal.measure();
+			return retVal;
+		}
+		
+		private void measure() {
+			final LineMetrics lm = font.getLineMetrics(text, frc);
+			ascent = lm.getAscent();
+			descent = lm.getDescent();
+			bounds = font.getStringBounds(text, frc);
+			layout = (text.length() > 0 ? new TextLayout(text, font, frc) : null);
+		}
+		
+		/**
+		 * Gets whether this label was measured for the given text, font
+		 * and render context.
+		 * 
+		 * @param text  the text
+		 * @param font  the font
+		 * @param frc  the font render context
+		 * 
+		 * @return <code>true</code> if this label matches
+		 */
+		public boolean matches(String text, Font font, FontRenderContext frc) {
+			return this.text.equals(text) && this.font.equals(font) && this.frc.equals(frc);
+		}
+		
+		/**
+		 * Gets the text of this label.
+		 * 
+		 * @return the text
+		 */
+		public String getText() {
+			return text;
+		}
+		
+		/**
+		 * Gets the font of this label.
+		 * 
+		 * @return the font
+		 */
+		public Font getFont() {
+			return font;
+		}
+		
+		/**
+		 * Gets the render context the text was measured for.
+		 * 
+		 * @return the font render context
+		 */
+		public FontRenderContext getFontRenderContext() {
+			return frc;
+		}
+		
+		/**
+		 * Gets the logical bounds of the text, as returned by
+		 * {@link Font#getStringBounds(String, FontRenderContext)}.
+		 * 
+		 * @return a copy of the text bounds
+		 */
+		public Rectangle2D getBounds() {
+			return (Rectangle2D)bounds.clone();
+		}
+		
+		/**
+		 * Gets the width of the text.
+		 * 
+		 * @return the width
+		 */
+		public double getWidth() {
+			return bounds.getWidth();
+		}
+		
+		/**
+		 * Gets the height of the text.
+		 * 
+		 * @return the height
+		 */
+		public double getHeight() {
+			return bounds.getHeight();
+		}
+		
+		/**
+		 * Gets the ascent of the text.
+		 * 
+		 * @return the ascent
+		 */
+		public float getAscent() {
+			return ascent;
+		}
+		
+		/**
+		 * Gets the descent of the text.
+		 * 
+		 * @return the descent
+		 */
+		public float getDescent() {
+			return descent;
+		}
+		
+		/**
+		 * Draws the text using the current color of the graphics context.
+		 * 
+		 * @param g2  the graphics context
+		 * @param x  the x position of the text
+		 * @param y  the baseline of the text
+		 */
+		public void draw(Graphics2D g2, float x, float y) {
+			if(layout != null)
+				layout.draw(g2, x, y);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Label)) return false;
+			final Label other = (Label)obj;
+			return matches(other.text, other.font, other.frc);
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hash(text, font, frc);
+		}
+	
+	}
+	
+	/**
+	 * Weak key comparing values by identity.  A key equals only itself
+	 * once its value has been collected.
+	 */
+	private final static class IdentityKey extends WeakReference<Object> {
+		
+		private final int hash;
+		
+		IdentityKey(Object value, ReferenceQueue<Object> queue) {
+			super(value, queue);
+			this.hash = System.identityHashCode(value);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(obj == this) return true;
+			if(!(obj instanceof IdentityKey)) return false;
+			final Object value = get();
+			return (value != null && ((IdentityKey)obj).get() == value);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	
+	}
+
+}
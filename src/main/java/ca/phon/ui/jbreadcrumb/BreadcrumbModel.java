@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import ca.phon.ui.jbreadcrumb.Breadcrumb.EntrySet;
+
+/**
+ * Data model for a {@link JBreadcrumb}.  A breadcrumb model maintains
+ * a linear navigation history of states, each with an associated value.
+ * 
+ * @param <S>  the type of state
+ * @param <V>  the type of value associated with a state
+ */
+public interface BreadcrumbModel<S, V> {
+	
+	/**
+	 * Gets the number of states in this breadcrumb.
+	 * 
+	 * @return the number of states
+	 */
+	public int size();
+	
+	/**
+	 * Gets whether this breadcrumb is empty.
+	 * 
+	 * @return <code>true</code> if the breadcrumb has no states,
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isEmpty();
+	
+	/**
+	 * Gets whether or not the breadcrumb contains a state.
+	 * 
+	 * @param state  the state to look for
+	 * 
+	 * @return <code>true</code> if the breadcrumb contains the given state,
+	 *         <code>false</code> otherwise
+	 */
+	public boolean containsState(S state);
+	
+	/**
+	 * Gets the current state of this breadcrumb.
+	 * 
+	 * @return  the current state, or <code>null</code> if no states available
+	 */
+	public S getCurrentState();
+	
+	/**
+	 * Gets the value associated with the current state of this breadcrumb.
+	 * 
+	 * @return  the current state's value, or <code>null</code> if no states available
+	 */
+	public V getCurrentValue();
+	
+	/**
+	 * Index of given state
+	 * 
+	 * @param state  the state to find
+	 * @return index of state or -1
+	 */
+	public int getIndexOfState(S state);
+	
+	/**
+	 * Gets the state at the specified index.
+	 * 
+	 * @param index  the index of the state
+	 * 
+	 * @return the state at the given index
+	 * 
+	 * @throws IndexOutOfBoundsException  if the index is out of range (i.e.,
+	 *                                    {@code index < 0 || index >= size()})
+	 */
+	public S peekState(int index);
+	
+	/**
+	 * Get value for given state.
+	 * 
+	 * @param state  the state to get the value for
+	 * @return the value associated with the state
+	 */
+	public V getValue(S state);
+	
+	/**
+	 * Get value for given state if it is available without loading it.
+	 * Renderers use this method so that painting the breadcrumb does not
+	 * load values.  Models which do not load values lazily return the
+	 * same value as {@link #getValue(Object)}.
+	 * 
+	 * @param state  the state to get the value for
+	 * @return the value associated with the state, or <code>null</code>
+	 *         if the value is not loaded
+	 */
+	public default V getValueIfPresent(S state) {
+		return getValue(state);
+	}
+	
+	/**
+	 * Get value at given index.
+	 * 
+	 * @param index  the index of the state
+	 * @return the value at the given index
+	 * 
+	 * @throws IndexOutOfBoundsException  if the index is out of range (i.e.,
+	 *                                    {@code index < 0 || index >= size()})
+	 */
+	public default V getValueAt(int index) {
+		return getValue(peekState(index));
+	}
+	
+	/**
+	 * Get value at given index if it is available without loading it.
+	 * 
+	 * @param index  the index of the state
+	 * @return the value at the given index, or <code>null</code> if the
+	 *         value is not loaded
+	 * 
+	 * @throws IndexOutOfBoundsException  if the index is out of range (i.e.,
+	 *                                    {@code index < 0 || index >= size()})
+	 * 
+	 * @see #getValueIfPresent(Object)
+	 */
+	public default V getValueIfPresentAt(int index) {
+		return getValueAt(index);
+	}
+	
+	/**
+	 * Set value at given index.
+	 * 
+	 * @param index  the index of the state
+	 * @param value  the value to set
+	 * 
+	 * @throws IndexOutOfBoundsException  if the index is out of range (i.e.,
+	 *                                    {@code index < 0 || index >= size()})
+	 */
+	public default void setValueAt(int index, V value) {
+		setValue(peekState(index), value);
+	}
+	
+	/**
+	 * Set value for given state.  The state must already exist.
+	 * 
+	 * @param state  the state to set the value for
+	 * @param value  the value to set
+	 */
+	public void setValue(S state, V value);
+	
+	/**
+	 * Gets the set of states as an immutable list.
+	 * 
+	 * @return the list of states
+	 */
+	public List<S> getStates();
+	
+	/**
+	 * Gets the set of values as an immutable collection.
+	 * 
+	 * @return the collection of values
+	 */
+	public Collection<V> getValues();
+	
+	/**
+	 * Empties this breadcrumb.
+	 */
+	public void clear();
+	
+	/**
+	 * Removes and returns the current state from this breadcrumb.
+	 * 
+	 * @return the removed state and value as an EntrySet, or null if breadcrumb is empty
+	 */
+	public EntrySet<S, V> popState();
+	
+	/**
+	 * Goes to the given state. If the state is part of this breadcrumb, all
+	 * states following it will be removed.
+	 * 
+	 * @param state  the state to go to
+	 */
+	public void gotoState(S state);
+	
+	/**
+	 * Go to the state at the given index, removing all states after it.
+	 * Unlike {@link #gotoState(Object)}, the given occurrence is used
+	 * when a state occurs more than once.
+	 * 
+	 * @param index  the index of the state
+	 * 
+	 * @throws IndexOutOfBoundsException  if the index is out of range (i.e.,
+	 *                                    {@code index < 0 || index >= size()})
+	 */
+	public default void gotoIndex(int index) {
+		gotoState(peekState(index));
+	}
+	
+	/**
+	 * Sets the complete state of the breadcrumb to a given list of
+	 * state/value pairs.  Implementations should keep the states shared
+	 * with the current breadcrumb and only report the positions which
+	 * changed.
+	 * 
+	 * @param states  the new set of states
+	 */
+	public void set(List<EntrySet<S, V>> states);
+	
+	/**
+	 * Append the given state to this breadcrumb with a <code>null</code> value.
+	 * 
+	 * @param state  the state
+	 */
+	public void addState(S state);
+	
+	/**
+	 * Append the given state/value pair to this breadcrumb.
+	 * 
+	 * @param state  the state
+	 * @param value  the value to associate with the given state
+	 */
+	public void addState(S state, V value);
+	
+	/**
+	 * Begins a batch update.  Events are suppressed until the matching
+	 * call to {@link #endUpdate()}, at which point a single
+	 * {@link BreadcrumbEvent.BreadcrumbEventType#STATES_CHANGED} event
+	 * is fired if the breadcrumb was modified.  Batch updates may be nested.
+	 */
+	public void beginUpdate();
+	
+	/**
+	 * Ends a batch update started with {@link #beginUpdate()}.
+	 * 
+	 * @throws IllegalStateException  if no batch update is in progress
+	 */
+	public void endUpdate();
+	
+	/**
+	 * Gets whether a batch update is in progress.
+	 * 
+	 * @return <code>true</code> if events are currently being coalesced,
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isUpdating();
+	
+	/**
+	 * Performs the given modifications as a single batch update.
+	 * 
+	 * @param update  the modifications to perform on this breadcrumb
+	 */
+	public default void batch(Consumer<? super BreadcrumbModel<S, V>> update) {
+		beginUpdate();
+		try {
+			update.accept(this);
+		} finally {
+			endUpdate();
+		}
+	}
+	
+	/**
+	 * Adds a breadcrumb listener to this breadcrumb.
+	 * 
+	 * @param listener  the listener to add
+	 */
+	public void addBreadcrumbListener(BreadcrumbListener<S, V> listener);
+	
+	/**
+	 * Adds a breadcrumb listener which receives events using the given
+	 * executor.  Events are delivered to the listener in the order they
+	 * were fired.  The listener may be removed using
+	 * {@link #removeBreadcrumbListener(BreadcrumbListener)}.
+	 * 
+	 * @param listener  the listener to add
+	 * @param executor  the executor used to deliver events, e.g.,
+	 *                  {@link ExecutorBreadcrumbListener#EDT_EXECUTOR}
+	 * 
+	 * @see ExecutorBreadcrumbListener
+	 */
+	public default void addBreadcrumbListener(BreadcrumbListener<S, V> listener, Executor executor) {
+		addBreadcrumbListener(new ExecutorBreadcrumbListener<>(listener, executor));
+	}
+	
+	/**
+	 * Creates a {@link java.util.concurrent.Flow.Publisher} of the events
+	 * of this model.  Each subscriber has a bounded buffer of events
+	 * delivered using the given executor.  The publisher listens to this
+	 * model until closed.
+	 * 
+	 * @param executor  the executor used to deliver events
+	 * 
+	 * @return a new event publisher
+	 * 
+	 * @see BreadcrumbEventPublisher
+	 */
+	public default BreadcrumbEventPublisher<S, V> createEventPublisher(Executor executor) {
+		return new BreadcrumbEventPublisher<>(this, executor);
+	}
+	
+	/**
+	 * Removes a breadcrumb listener from this breadcrumb.
+	 * 
+	 * @param listener  the listener to remove
+	 */
+	public void removeBreadcrumbListener(BreadcrumbListener<S, V> listener);
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ca.phon.ui.jbreadcrumb.Breadcrumb.EntrySet;
+
+/**
+ * Immutable snapshot of the states and values of a breadcrumb.
+ *
+ * <p>Snapshots are persistent lists: each entry references the entry
+ * below it, and snapshots taken from the same breadcrumb share the
+ * entries of their common prefix.  Keeping many snapshots, e.g., for
+ * undo history, costs memory proportional to the changes between them
+ * rather than to the depth of the breadcrumb.</p>
+ *
+ * @param <S>  the type of state
+ * @param <V>  the type of value
+ *
+ * @see DefaultBreadcrumbModel#snapshot()
+ * @see DefaultBreadcrumbModel#restore(BreadcrumbSnapshot)
+ */
+public final class BreadcrumbSnapshot<S, V> {
+
+	/**
+	 * Entry in a snapshot.  Nodes are never modified once created.
+	 *
+	 * @param <S>  the type of state
+	 * @param <V>  the type of value
+	 */
+	static final class Node<S, V> {
+
+		final S state;
+
+		final V value;
+
+		final Node<S, V> parent;
+
+		final int depth;
+
+		Node(S state, V value, Node<S, V> parent) {
+			this.state = state;
+			this.value = value;
+			this.parent = parent;
+			this.depth = (parent != null ? parent.depth + 1 : 1);
+		}
+
+	}
+
+	private final Node<S, V> top;
+
+	BreadcrumbSnapshot(Node<S, V> top) {
+		super();
+		this.top = top;
+	}
+
+	/**
+	 * Gets the last entry of this snapshot.
+	 *
+	 * @return the top node, <code>null</code> if empty
+	 */
+	Node<S, V> getTop() {
+		return top;
+	}
+
+	/**
+	 * Gets the number of states in this snapshot.
+	 *
+	 * @return the number of states
+	 */
+	public int size() {
+		return (top != null ? top.depth : 0);
+	}
+
+	/**
+	 * Gets whether this snapshot is empty.
+	 *
+	 * @return <code>true</code> if the snapshot has no states
+	 */
+	public boolean isEmpty() {
+		return top == null;
+	}
+
+	/**
+	 * Gets the current state of this snapshot.
+	 *
+	 * @return the current state, or <code>null</code> if empty
+	 */
+	public S getCurrentState() {
+		return (top != null ? top.state : null);
+	}
+
+	/**
+	 * Gets the value of the current state of this snapshot.
+	 *
+	 * @return the current value, or <code>null</code> if empty
+	 */
+	public V getCurrentValue() {
+		return (top != null ? top.value : null);
+	}
+
+	/**
+	 * Gets the states of this snapshot.  Requires time proportional to
+	 * the size of the snapshot.
+	 *
+	 * @return the list of states
+	 */
+	public List<S> getStates() {
+		final List<S> retVal = new ArrayList<>(size());
+		for(Node<S, V> node = top; node != null; node = node.parent)
+			retVal.add(node.state);
+		Collections.reverse(retVal);
+		return Collections.unmodifiableList(retVal);
+	}
+
+	/**
+	 * Gets the state/value pairs of this snapshot.  Requires time
+	 * proportional to the size of the snapshot.
+	 *
+	 * @return the list of entries
+	 */
+	public List<EntrySet<S, V>> getEntries() {
+		final List<EntrySet<S, V>> retVal = new ArrayList<>(size());
+		for(Node<S, V> node = top; node != null; node = node.parent)
+			retVal.add(new EntrySet<>(node.state, node.value));
+		Collections.reverse(retVal);
+		return Collections.unmodifiableList(retVal);
+	}
+
+}
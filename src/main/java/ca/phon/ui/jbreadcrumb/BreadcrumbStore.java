@@ -0,0 +1,416 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import ca.phon.ui.jbreadcrumb.Breadcrumb.EntrySet;
+
+/**
+ * Stores named breadcrumb trails in a compact binary file.  States and
+ * values are written using {@link BreadcrumbCodec}s.  Opening the store
+ * only reads the directory of trails, each trail is decoded when it is
+ * restored from a memory-mapped {@link FileChannel} region.  The file is
+ * not kept open or mapped between reads; a trail's mapping is released
+ * once it is no longer reachable after the trail is decoded.  A missing
+ * file is read as an empty store.
+ * 
+ * <p>Restoring a trail into a new model fires no events, restoring into
+ * an existing model fires a single batch update event.  A trail is
+ * located and mapped while holding the lock of the store, so a
+ * concurrent {@link #save(Map)} cannot replace the file in between.</p>
+ * 
+ * <p>File format: a header (magic number and version), the entries of
+ * each trail, a directory with the name, offset and size of each trail,
+ * and finally the offset of the directory.  Each entry is a flag byte,
+ * indicating whether the value is present, the encoded state and the
+ * encoded value.  Offsets are <code>long</code>s, a single trail must
+ * be smaller than 2 GiB to be mapped.</p>
+ * 
+ * @param <S>  the type of state
+ * @param <V>  the type of value
+ */
+public class BreadcrumbStore<S, V> implements Closeable {
+	
+	private final static int MAGIC = 0x4a425243;
+	
+	private final static int VERSION = 2;
+	
+	private final static byte HAS_VALUE = 0x01;
+	
+	private final Path file;
+	
+	private final BreadcrumbCodec<S> stateCodec;
+	
+	private final BreadcrumbCodec<V> valueCodec;
+	
+	/** Trails in the file by name, <code>null</code> until first read */
+	private Map<String, TrailEntry> directory;
+	
+	/**
+	 * Creates a new store for the given file.  The file is not read or
+	 * created until needed.
+	 * 
+	 * @param file  the file
+	 * @param stateCodec  codec for states
+	 * @param valueCodec  codec for values
+	 */
+	public BreadcrumbStore(Path file, BreadcrumbCodec<S> stateCodec, BreadcrumbCodec<V> valueCodec) {
+		super();
+		this.file = Objects.requireNonNull(file);
+		this.stateCodec = Objects.requireNonNull(stateCodec);
+		this.valueCodec = Objects.requireNonNull(valueCodec);
+	}
+	
+	/**
+	 * Gets the file of this store.
+	 * 
+	 * @return the file
+	 */
+	public Path getFile() {
+		return file;
+	}
+	
+	/**
+	 * Writes the given trails to the file, replacing its contents.  The
+	 * file is written to a temporary file which then replaces the store
+	 * file.  Each model is read within a batch update so that concurrent
+	 * models are not modified while being written.
+	 * 
+	 * @param trails  the trails by name
+	 * 
+	 * @throws IOException  if the file could not be written
+	 */
+	public synchronized void save(Map<String, ? extends BreadcrumbModel<S, V>> trails) throws IOException {
+		final Path dir = file.toAbsolutePath().getParent();
+		final Path tempFile = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+		try {
+			// DataOutputStream.size() stops counting at 2 GiB
+			final CountingOutputStream counter = new CountingOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tempFile)));
+			try(DataOutputStream out = new DataOutputStream(counter)) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				
+				final Map<String, TrailEntry> entries = new LinkedHashMap<>();
+				for(Map.Entry<String, ? extends BreadcrumbModel<S, V>> trail : trails.entrySet()) {
+					final long offset = counter.count;
+					final int size = writeTrail(trail.getValue(), out);
+					entries.put(trail.getKey(), new TrailEntry(offset, counter.count - offset, size));
+				}
+				
+				final long directoryOffset = counter.count;
+				out.writeInt(entries.size());
+				for(Map.Entry<String, TrailEntry> entry : entries.entrySet()) {
+					BreadcrumbCodec.STRING.write(entry.getKey(), out);
+					out.writeLong(entry.getValue().offset);
+					out.writeInt(entry.getValue().size);
+				}
+				out.writeLong(directoryOffset);
+			}
+			close();
+			try {
+				Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+	
+	private int writeTrail(BreadcrumbModel<S, V> model, DataOutputStream out) throws IOException {
+		model.beginUpdate();
+		try {
+			final Iterator<S> states = model.getStates().iterator();
+			final Iterator<V> values = model.getValues().iterator();
+			int size = 0;
+			while(states.hasNext()) {
+				final S state = states.next();
+				final V value = (values.hasNext() ? values.next() : null);
+				out.writeByte(value != null ? HAS_VALUE : 0);
+				stateCodec.write(state, out);
+				if(value != null)
+					valueCodec.write(value, out);
+				++size;
+			}
+			return size;
+		} finally {
+			model.endUpdate();
+		}
+	}
+	
+	/**
+	 * Reads the directory of the file, if not already done.
+	 * 
+	 * @return the trails by name, empty if the file does not exist
+	 * 
+	 * @throws IOException  if the file could not be read or is not a
+	 *                      breadcrumb store
+	 */
+	private Map<String, TrailEntry> open() throws IOException {
+		if(directory != null) return directory;
+		
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final long fileSize = channel.size();
+			if(fileSize < 3 * Integer.BYTES + Long.BYTES)
+				throw new IOException("Not a breadcrumb store: " + file);
+			
+			final ByteBuffer header = read(channel, 0L, 2 * Integer.BYTES);
+			if(header.getInt() != MAGIC)
+				throw new IOException("Not a breadcrumb store: " + file);
+			if(header.getInt() != VERSION)
+				throw new IOException("Unsupported breadcrumb store version: " + file);
+			
+			final long directoryEnd = fileSize - Long.BYTES;
+			final long directoryOffset = read(channel, directoryEnd, Long.BYTES).getLong();
+			if(directoryOffset < 2 * Integer.BYTES || directoryOffset > directoryEnd - Integer.BYTES
+					|| directoryEnd - directoryOffset > Integer.MAX_VALUE)
+				throw new IOException("Corrupt breadcrumb store: " + file);
+			
+			final ByteBuffer data = read(channel, directoryOffset, (int)(directoryEnd - directoryOffset));
+			final Map<String, TrailEntry> entries = new LinkedHashMap<>();
+			try {
+				// trails are written in order, each ends where the next begins
+				final int count = data.getInt();
+				String name = null;
+				long offset = 2 * Integer.BYTES;
+				int size = 0;
+				for(int i = 0; i < count; i++) {
+					final String nextName = BreadcrumbCodec.STRING.read(data);
+					final long nextOffset = data.getLong();
+					final int nextSize = data.getInt();
+					if(nextOffset < offset || nextSize < 0)
+						throw new IOException("Corrupt breadcrumb store: " + file);
+					if(name != null)
+						entries.put(name, new TrailEntry(offset, nextOffset - offset, size));
+					name = nextName;
+					offset = nextOffset;
+					size = nextSize;
+				}
+				if(name != null) {
+					if(offset > directoryOffset)
+						throw new IOException("Corrupt breadcrumb store: " + file);
+					entries.put(name, new TrailEntry(offset, directoryOffset - offset, size));
+				}
+			} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+				throw new IOException("Corrupt breadcrumb store: " + file, e);
+			}
+			directory = entries;
+		} catch (NoSuchFileException e) {
+			return Collections.emptyMap();
+		}
+		return directory;
+	}
+	
+	/**
+	 * Reads a region of the file into a heap buffer.
+	 */
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		final ByteBuffer retVal = ByteBuffer.allocate(length);
+		while(retVal.hasRemaining()) {
+			if(channel.read(retVal, position + retVal.position()) < 0)
+				throw new EOFException();
+		}
+		retVal.flip();
+		return retVal;
+	}
+	
+	/**
+	 * Gets the names of the trails in the file.
+	 * 
+	 * @return the trail names in the order they were saved, empty if the
+	 *         file does not exist
+	 * 
+	 * @throws IOException  if the file could not be read
+	 */
+	public synchronized Set<String> getTrailNames() throws IOException {
+		return Collections.unmodifiableSet(open().keySet());
+	}
+	
+	/**
+	 * Gets the number of states in a trail without decoding the trail.
+	 * 
+	 * @param name  the trail name
+	 * 
+	 * @return the number of states, -1 if the trail or file does not exist
+	 * 
+	 * @throws IOException  if the file could not be read
+	 */
+	public synchronized int getTrailSize(String name) throws IOException {
+		final TrailEntry entry = open().get(name);
+		return (entry != null ? entry.size : -1);
+	}
+	
+	/**
+	 * Decodes the states and values of a trail.  Only the region of the
+	 * file holding the trail is mapped.  The trail is decoded after
+	 * releasing the lock of the store, the mapping keeps the contents of
+	 * the file it was read from if the file is replaced.
+	 * 
+	 * @param name  the trail name
+	 * 
+	 * @return the entries of the trail, or <code>null</code> if the trail
+	 *         or file does not exist
+	 * 
+	 * @throws IOException  if the trail could not be read
+	 */
+	public List<EntrySet<S, V>> readTrail(String name) throws IOException {
+		final TrailEntry entry;
+		final ByteBuffer data;
+		synchronized(this) {
+			entry = open().get(name);
+			if(entry == null) return null;
+			if(entry.length > Integer.MAX_VALUE)
+				throw new IOException("Breadcrumb trail too large to map: " + name);
+			
+			try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				data = channel.map(FileChannel.MapMode.READ_ONLY, entry.offset, entry.length);
+			} catch (NoSuchFileException e) {
+				// file removed since the directory was read
+				close();
+				return null;
+			}
+		}
+		
+		final List<EntrySet<S, V>> retVal = new ArrayList<>((int)Math.min(entry.size, entry.length));
+		try {
+			for(int i = 0; i < entry.size; i++) {
+				final byte flags = data.get();
+				final S state = stateCodec.read(data);
+				final V value = ((flags & HAS_VALUE) != 0 ? valueCodec.read(data) : null);
+				retVal.add(new EntrySet<>(state, value));
+			}
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+			throw new IOException("Corrupt breadcrumb trail: " + name, e);
+		}
+		return retVal;
+	}
+	
+	/**
+	 * Restores a trail into a new model.  No events are fired.
+	 * 
+	 * @param name  the trail name
+	 * 
+	 * @return the restored model, or <code>null</code> if the trail does not exist
+	 * 
+	 * @throws IOException  if the trail could not be read
+	 */
+	public DefaultBreadcrumbModel<S, V> restore(String name) throws IOException {
+		final List<EntrySet<S, V>> entries = readTrail(name);
+		if(entries == null) return null;
+		final DefaultBreadcrumbModel<S, V> retVal = new DefaultBreadcrumbModel<>();
+		for(EntrySet<S, V> entry : entries)
+			retVal.addState(entry.getState(), entry.getValue());
+		return retVal;
+	}
+	
+	/**
+	 * Restores a trail into an existing model using
+	 * {@link BreadcrumbModel#set(List)}, which fires a single batch
+	 * update event.
+	 * 
+	 * @param name  the trail name
+	 * @param model  the model
+	 * 
+	 * @return <code>true</code> if the trail exists and was restored
+	 * 
+	 * @throws IOException  if the trail could not be read
+	 */
+	public boolean restore(String name, BreadcrumbModel<S, V> model) throws IOException {
+		final List<EntrySet<S, V>> entries = readTrail(name);
+		if(entries == null) return false;
+		model.set(entries);
+		return true;
+	}
+	
+	/**
+	 * Discards the directory read from the file.  The store may still be
+	 * used, the directory is read again when needed.
+	 */
+	@Override
+	public synchronized void close() {
+		directory = null;
+	}
+	
+	/**
+	 * Offset, length in bytes and number of states of a trail.
+	 */
+	private final static class TrailEntry {
+		
+		final long offset;
+		
+		final long length;
+		
+		final int size;
+		
+		TrailEntry(long offset, long length, int size) {
+			this.offset = offset;
+			this.length = length;
+			this.size = size;
+		}
+	
+	}
+	
+	/**
+	 * Output stream counting the bytes written as a <code>long</code>.
+	 */
+	private final static class CountingOutputStream extends FilterOutputStream {
+		
+		long count = 0L;
+		
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			++count;
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	
+	}
+
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded least-recently-used cache of breadcrumb values.  The cache may
+ * be bounded by number of entries, by total weight, or both.  Values may
+ * optionally be held by soft references, allowing the garbage collector
+ * to reclaim them before the bounds are reached.  The most recently used
+ * value is always kept, even if it exceeds the weight bound by itself.
+ * 
+ * <p>All methods are synchronized.</p>
+ * 
+ * @param <K>  the type of key
+ * @param <V>  the type of value
+ * 
+ * @see DefaultBreadcrumbModel#setValueLoader(java.util.function.Function, BreadcrumbValueCache)
+ */
+public class BreadcrumbValueCache<K, V> {
+	
+	/** Maximum number of entries, 0 if unbounded */
+	private final int maximumSize;
+	
+	/** Maximum total weight, 0 if unbounded */
+	private final long maximumWeight;
+	
+	private final ToLongFunction<? super V> weigher;
+	
+	private final boolean softValues;
+	
+	/** Entries in access order, least recently used first */
+	private final LinkedHashMap<K, CacheEntry<K, V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+	
+	/** Queue of soft references cleared by the garbage collector */
+	private final ReferenceQueue<V> clearedValues = new ReferenceQueue<>();
+	
+	/** Total weight of entries */
+	private long weight = 0L;
+	
+	/**
+	 * Creates a new cache holding at most the given number of values.
+	 * 
+	 * @param maximumSize  the maximum number of values
+	 */
+	public BreadcrumbValueCache(int maximumSize) {
+		this(maximumSize, 0L, null, false);
+	}
+	
+	/**
+	 * Creates a new cache.
+	 * 
+	 * @param maximumSize  the maximum number of values, 0 for unbounded
+	 * @param maximumWeight  the maximum total weight of values, 0 for unbounded
+	 * @param weigher  computes the weight of a value, may be <code>null</code>
+	 *                 if maximumWeight is 0
+	 * @param softValues  whether values are held by soft references
+	 * 
+	 * @throws IllegalArgumentException  if a bound is negative or a
+	 *                                   weight bound is given without a weigher
+	 */
+	public BreadcrumbValueCache(int maximumSize, long maximumWeight, ToLongFunction<? super V> weigher, boolean softValues) {
+		super();
+		if(maximumSize < 0 || maximumWeight < 0L)
+			throw new IllegalArgumentException("Cache bounds must not be negative");
+		if(maximumWeight > 0L && weigher == null)
+			throw new IllegalArgumentException("A weigher is required for a weight bound");
+		this.maximumSize = maximumSize;
+		this.maximumWeight = maximumWeight;
+		this.weigher = weigher;
+		this.softValues = softValues;
+	}
+	
+	/**
+	 * Gets the maximum number of values.
+	 * 
+	 * @return the maximum size, 0 if unbounded
+	 */
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+	
+	/**
+	 * Gets the maximum total weight of values.
+	 * 
+	 * @return the maximum weight, 0 if unbounded
+	 */
+	public long getMaximumWeight() {
+		return maximumWeight;
+	}
+	
+	/**
+	 * Gets the function used to compute the weight of values.
+	 * 
+	 * @return the weigher, may be <code>null</code>
+	 */
+	public ToLongFunction<? super V> getWeigher() {
+		return weigher;
+	}
+	
+	/**
+	 * Gets whether values are held by soft references.
+	 * 
+	 * @return <code>true</code> if values are softly referenced
+	 */
+	public boolean isSoftValues() {
+		return softValues;
+	}
+	
+	/**
+	 * Gets a value, marking it as most recently used.
+	 * 
+	 * @param key  the key
+	 * 
+	 * @return the value, or <code>null</code> if not cached
+	 */
+	public synchronized V get(K key) {
+		expungeClearedValues();
+		final CacheEntry<K, V> entry = entries.get(key);
+		if(entry == null) return null;
+		final V retVal = entry.get();
+		if(retVal == null)
+			remove(key);
+		return retVal;
+	}
+	
+	/**
+	 * Adds a value, evicting least recently used values if a bound is
+	 * exceeded.
+	 * 
+	 * @param key  the key
+	 * @param value  the value, <code>null</code> removes the key
+	 */
+	public synchronized void put(K key, V value) {
+		expungeClearedValues();
+		if(value == null) {
+			remove(key);
+			return;
+		}
+		final long valueWeight = (weigher != null ? weigher.applyAsLong(value) : 0L);
+		final CacheEntry<K, V> entry = (softValues
+				? new SoftCacheEntry<>(key, value, valueWeight, clearedValues)
+				: new StrongCacheEntry<>(value, valueWeight));
+		final CacheEntry<K, V> oldEntry = entries.put(key, entry);
+		if(oldEntry != null)
+			weight -= oldEntry.getWeight();
+		weight += valueWeight;
+		trim();
+	}
+	
+	/**
+	 * Removes a value.
+	 * 
+	 * @param key  the key
+	 */
+	public synchronized void remove(K key) {
+		final CacheEntry<K, V> entry = entries.remove(key);
+		if(entry != null)
+			weight -= entry.getWeight();
+	}
+	
+	/**
+	 * Removes all values.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		weight = 0L;
+		while(clearedValues.poll() != null);
+	}
+	
+	/**
+	 * Gets the number of cached values, including softly referenced
+	 * values which may already have been reclaimed.
+	 * 
+	 * @return the number of values
+	 */
+	public synchronized int size() {
+		expungeClearedValues();
+		return entries.size();
+	}
+	
+	/**
+	 * Gets the total weight of cached values.
+	 * 
+	 * @return the total weight
+	 */
+	public synchronized long getWeight() {
+		expungeClearedValues();
+		return weight;
+	}
+	
+	/**
+	 * Evicts least recently used values until the cache is within bounds.
+	 */
+	private void trim() {
+		final Iterator<CacheEntry<K, V>> itr = entries.values().iterator();
+		while(entries.size() > 1
+				&& ((maximumSize > 0 && entries.size() > maximumSize)
+					|| (maximumWeight > 0L && weight > maximumWeight))) {
+			weight -= itr.next().getWeight();
+			itr.remove();
+		}
+	}
+	
+	/**
+	 * Removes entries whose values were reclaimed by the garbage collector.
+	 */
+	private void expungeClearedValues() {
+		Reference<? extends V> ref = null;
+		while((ref = clearedValues.poll()) != null) {
+			final SoftCacheEntry<?, ?> cleared = (SoftCacheEntry<?, ?>)ref;
+			// only removed if the key has not been given a new value since,
+			// does not change the access order
+			if(entries.remove(cleared.key, cleared))
+				weight -= cleared.weight;
+		}
+	}
+	
+	/**
+	 * Cached value.
+	 */
+	private static interface CacheEntry<K, V> {
+		
+		V get();
+		
+		long getWeight();
+	
+	}
+	
+	private final static class StrongCacheEntry<K, V> implements CacheEntry<K, V> {
+		
+		private final V value;
+		
+		private final long weight;
+		
+		StrongCacheEntry(V value, long weight) {
+			this.value = value;
+			this.weight = weight;
+		}
+		
+		@Override
+		public V get() {
+			return value;
+		}
+		
+		@Override
+		public long getWeight() {
+			return weight;
+		}
+	
+	}
+	
+	private final static class SoftCacheEntry<K, V> extends SoftReference<V> implements CacheEntry<K, V> {
+		
+		private final K key;
+		
+		private final long weight;
+		
+		SoftCacheEntry(K key, V value, long weight, ReferenceQueue<V> queue) {
+			super(value, queue);
+			this.key = key;
+			this.weight = weight;
+		}
+		
+		@Override
+		public long getWeight() {
+			return weight;
+		}
+	
+	}
+
+}
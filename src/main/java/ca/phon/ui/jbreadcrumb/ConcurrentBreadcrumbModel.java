@@ -0,0 +1,472 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import ca.phon.ui.jbreadcrumb.Breadcrumb.EntrySet;
+
+/**
+ * Thread-safe {@link BreadcrumbModel}.  Each operation, including compound
+ * operations such as {@link #addState(Object, Object)} and
+ * {@link #gotoState(Object)}, is performed atomically under a single
+ * write lock.  Reads of the size and of individual states first attempt
+ * an optimistic read and only fall back to a read lock if a writer
+ * intervened, so painting does not block writers.  Lookups by state use
+ * a hash map which may not be walked while it is modified and are always
+ * performed under the read lock.
+ * 
+ * <p>Events are queued while the write lock is held and dispatched, in
+ * the order the modifications were made, once the lock is released.
+ * Listeners may therefore read from the model without deadlocking.
+ * A batch update started with {@link #beginUpdate()} holds the write lock
+ * until the matching {@link #endUpdate()}.</p>
+ * 
+ * <p>{@link #getStates()} and {@link #getValues()} return snapshots.
+ * Values are always read under the read lock, never optimistically.
+ * The forward history is not read optimistically, it is queried under
+ * the read lock and modified under the write lock.  With a value loader, values are
+ * loaded while the read lock is held and loads are serialized so that
+ * a value is loaded at most once while it remains cached.  The read lock
+ * is not re-entrant: a value loader must not read from the model.</p>
+ * 
+ * @param <S>  the type of state
+ * @param <V>  the type of value associated with a state
+ */
+public class ConcurrentBreadcrumbModel<S, V> extends DefaultBreadcrumbModel<S, V> {
+	
+	private static final long serialVersionUID = -1869502375309318297L;
+	
+	private final StampedLock lock = new StampedLock();
+	
+	/** Thread holding the write lock, if any */
+	private transient volatile Thread writer;
+	
+	/** Stamp for the held write lock */
+	private transient long writeStamp;
+	
+	/** Re-entrant hold count of the write lock, only accessed by the writer */
+	private transient int writeHolds;
+	
+	/** Events waiting to be dispatched, in modification order */
+	private final ConcurrentLinkedQueue<BreadcrumbEvent<S, V>> pendingEvents = new ConcurrentLinkedQueue<>();
+	
+	/** Set while a thread is dispatching pending events */
+	private final AtomicBoolean dispatching = new AtomicBoolean(false);
+	
+	/** Serializes value loads by threads sharing the read lock */
+	private final ReentrantLock loadLock = new ReentrantLock();
+	
+	/**
+	 * Creates a new empty concurrent breadcrumb model.
+	 */
+	public ConcurrentBreadcrumbModel() {
+		super();
+	}
+	
+	/**
+	 * Creates a new empty concurrent breadcrumb model with a maximum depth.
+	 * 
+	 * @param maximumDepth  the maximum number of states, 0 for unbounded
+	 * @param evictionPolicy  policy used to evict states when the maximum depth is reached
+	 */
+	public ConcurrentBreadcrumbModel(int maximumDepth, EvictionPolicy evictionPolicy) {
+		super(maximumDepth, evictionPolicy);
+	}
+	
+	//
+	// Locking
+	//
+	
+	private boolean isWriter() {
+		return writer == Thread.currentThread();
+	}
+	
+	private void acquireWrite() {
+		if(isWriter()) {
+			++writeHolds;
+		} else {
+			writeStamp = lock.writeLock();
+			writer = Thread.currentThread();
+			writeHolds = 1;
+		}
+	}
+	
+	private void releaseWrite() {
+		if(--writeHolds == 0) {
+			writer = null;
+			lock.unlockWrite(writeStamp);
+			dispatchPendingEvents();
+		}
+	}
+	
+	private <T> T write(Supplier<T> op) {
+		acquireWrite();
+		try {
+			return op.get();
+		} finally {
+			releaseWrite();
+		}
+	}
+	
+	private void write(Runnable op) {
+		acquireWrite();
+		try {
+			op.run();
+		} finally {
+			releaseWrite();
+		}
+	}
+	
+	private <T> T read(Supplier<T> op) {
+		if(isWriter()) return op.get();
+		
+		long stamp = lock.tryOptimisticRead();
+		if(stamp != 0L) {
+			try {
+				final T retVal = op.get();
+				if(lock.validate(stamp)) return retVal;
+			} catch (RuntimeException e) {
+				// inconsistent read, retry under lock
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return op.get();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Performs a read under the read lock, for reads which may not be
+	 * performed optimistically.
+	 */
+	private <T> T lockedRead(Supplier<T> op) {
+		if(isWriter()) return op.get();
+		
+		final long stamp = lock.readLock();
+		try {
+			return op.get();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Performs a read which may load values under the read lock.  Loads are
+	 * serialized so that concurrent readers do not load the same value twice.
+	 */
+	private <T> T loadingRead(Supplier<T> op) {
+		return lockedRead(() -> {
+			if(getValueLoader() == null) return op.get();
+			
+			loadLock.lock();
+			try {
+				return op.get();
+			} finally {
+				loadLock.unlock();
+			}
+		});
+	}
+	
+	private int lockedReadInt(IntSupplier op) {
+		if(isWriter()) return op.getAsInt();
+		
+		final long stamp = lock.readLock();
+		try {
+			return op.getAsInt();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	private int readInt(IntSupplier op) {
+		if(isWriter()) return op.getAsInt();
+		
+		long stamp = lock.tryOptimisticRead();
+		if(stamp != 0L) {
+			try {
+				final int retVal = op.getAsInt();
+				if(lock.validate(stamp)) return retVal;
+			} catch (RuntimeException e) {
+				// inconsistent read, retry under lock
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return op.getAsInt();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	//
+	// Events
+	//
+	
+	@Override
+	protected void fireBreadcrumbEvent(BreadcrumbEvent<S, V> evt) {
+		pendingEvents.add(evt);
+		if(!isWriter())
+			dispatchPendingEvents();
+	}
+	
+	/**
+	 * Dispatches queued events.  Only one thread dispatches at a time,
+	 * events queued by other threads during dispatch are delivered by
+	 * the dispatching thread.
+	 */
+	private void dispatchPendingEvents() {
+		while(!pendingEvents.isEmpty() && dispatching.compareAndSet(false, true)) {
+			try {
+				BreadcrumbEvent<S, V> evt = null;
+				while((evt = pendingEvents.poll()) != null)
+					super.fireBreadcrumbEvent(evt);
+			} finally {
+				dispatching.set(false);
+			}
+		}
+	}
+	
+	//
+	// Reads
+	//
+	
+	@Override
+	public int size() {
+		return readInt(super::size);
+	}
+	
+	@Override
+	public boolean containsState(S state) {
+		return lockedRead(() -> super.containsState(state));
+	}
+	
+	@Override
+	public S getCurrentState() {
+		return read(super::getCurrentState);
+	}
+	
+	@Override
+	public V getCurrentValue() {
+		return loadingRead(super::getCurrentValue);
+	}
+	
+	@Override
+	public int getIndexOfState(S state) {
+		return lockedReadInt(() -> super.getIndexOfState(state));
+	}
+	
+	@Override
+	public S peekState(int index) {
+		return read(() -> super.peekState(index));
+	}
+	
+	@Override
+	public V getValue(S state) {
+		return loadingRead(() -> super.getValue(state));
+	}
+	
+	@Override
+	public V getValueIfPresent(S state) {
+		return lockedRead(() -> super.getValueIfPresent(state));
+	}
+	
+	@Override
+	public V getValueAt(int index) {
+		return loadingRead(() -> super.getValueAt(index));
+	}
+	
+	@Override
+	public V getValueIfPresentAt(int index) {
+		return lockedRead(() -> super.getValueIfPresentAt(index));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>Returns a snapshot of the states at the time of the call.</p>
+	 */
+	@Override
+	public List<S> getStates() {
+		return lockedRead(() -> Collections.unmodifiableList(new ArrayList<>(super.getStates())));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>Returns a snapshot of the values at the time of the call.</p>
+	 */
+	@Override
+	public Collection<V> getValues() {
+		return loadingRead(() -> Collections.unmodifiableList(new ArrayList<>(super.getValues())));
+	}
+	
+	//
+	// Writes
+	//
+	
+	@Override
+	public void setMaximumDepth(int maximumDepth) {
+		write(() -> super.setMaximumDepth(maximumDepth));
+	}
+	
+	@Override
+	public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+		write(() -> super.setEvictionPolicy(evictionPolicy));
+	}
+	
+	@Override
+	public void setValue(S state, V value) {
+		write(() -> super.setValue(state, value));
+	}
+	
+	@Override
+	public void setValueAt(int index, V value) {
+		write(() -> super.setValueAt(index, value));
+	}
+	
+	@Override
+	public void clear() {
+		write(super::clear);
+	}
+	
+	@Override
+	public EntrySet<S, V> popState() {
+		return write(super::popState);
+	}
+	
+	@Override
+	public void gotoState(S state) {
+		write(() -> super.gotoState(state));
+	}
+	
+	@Override
+	public void gotoIndex(int index) {
+		write(() -> super.gotoIndex(index));
+	}
+	
+	@Override
+	public void set(List<EntrySet<S, V>> states) {
+		write(() -> super.set(states));
+	}
+	
+	@Override
+	public void addState(S state, V value) {
+		write(() -> super.addState(state, value));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>Taking a snapshot updates shared snapshot entries and is
+	 * performed under the write lock.</p>
+	 */
+	@Override
+	public BreadcrumbSnapshot<S, V> snapshot() {
+		return write(super::snapshot);
+	}
+	
+	@Override
+	public void restore(BreadcrumbSnapshot<S, V> snapshot) {
+		write(() -> super.restore(snapshot));
+	}
+	
+	@Override
+	public void setValueLoader(Function<? super S, ? extends V> valueLoader, BreadcrumbValueCache<S, V> valueCache) {
+		write(() -> super.setValueLoader(valueLoader, valueCache));
+	}
+	
+	@Override
+	public void setForwardHistoryLimit(int forwardHistoryLimit) {
+		write(() -> super.setForwardHistoryLimit(forwardHistoryLimit));
+	}
+	
+	@Override
+	public void setForwardHistoryByteLimit(long forwardHistoryByteLimit) {
+		write(() -> super.setForwardHistoryByteLimit(forwardHistoryByteLimit));
+	}
+	
+	@Override
+	public void setValueSizeEstimator(ToLongFunction<? super V> valueSizeEstimator) {
+		write(() -> super.setValueSizeEstimator(valueSizeEstimator));
+	}
+	
+	@Override
+	public void setRetainForwardValues(boolean retainForwardValues) {
+		write(() -> super.setRetainForwardValues(retainForwardValues));
+	}
+	
+	@Override
+	public List<S> getForwardStates() {
+		return lockedRead(super::getForwardStates);
+	}
+	
+	@Override
+	public void clearForwardHistory() {
+		write(super::clearForwardHistory);
+	}
+	
+	@Override
+	public boolean canGoBack() {
+		return read(super::canGoBack);
+	}
+	
+	@Override
+	public boolean canGoForward() {
+		return lockedRead(super::canGoForward);
+	}
+	
+	@Override
+	public boolean goBack() {
+		return write(super::goBack);
+	}
+	
+	@Override
+	public boolean goForward() {
+		return write(super::goForward);
+	}
+	
+	@Override
+	public void beginUpdate() {
+		acquireWrite();
+		super.beginUpdate();
+	}
+	
+	@Override
+	public void endUpdate() {
+		if(!isWriter())
+			throw new IllegalStateException("No batch update in progress on this thread");
+		try {
+			super.endUpdate();
+		} finally {
+			releaseWrite();
+		}
+	}
+
+}
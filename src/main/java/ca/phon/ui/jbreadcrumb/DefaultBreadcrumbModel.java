@@ -0,0 +1,1130 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import ca.phon.ui.jbreadcrumb.Breadcrumb.EntrySet;
+import ca.phon.ui.jbreadcrumb.BreadcrumbSnapshot.Node;
+
+/**
+ * Default implementation of {@link BreadcrumbModel} backed by a
+ * circular array.  This model is not synchronized and, like other
+ * Swing models, should only be modified on the event dispatch thread.
+ * 
+ * <p>The model may be given a maximum depth.  When a state is added to
+ * a full breadcrumb, a state is evicted according to the
+ * {@link EvictionPolicy} and a
+ * {@link BreadcrumbEvent.BreadcrumbEventType#STATE_EVICTED} event is fired.
+ * Eviction is a constant time operation.</p>
+ * 
+ * <p>Values are stored by position, a state which occurs more than once
+ * in the breadcrumb may have a different value at each position.
+ * {@link #getValue(Object)} and {@link #setValue(Object, Object)} refer
+ * to the first occurrence of the state.</p>
+ * 
+ * <p>Immutable snapshots of the breadcrumb may be taken with
+ * {@link #snapshot()} and restored with {@link #restore(BreadcrumbSnapshot)}.
+ * Snapshots share structure with each other, see {@link BreadcrumbSnapshot}.</p>
+ * 
+ * <p>The model may keep a forward history of states removed by
+ * {@link #popState()} and {@link #gotoState(Object)}, allowing
+ * browser-style {@link #goBack()} and {@link #goForward()} navigation.
+ * Forward history is disabled by default, see
+ * {@link #setForwardHistoryLimit(int)}.</p>
+ * 
+ * <p>Values may be loaded lazily, see
+ * {@link #setValueLoader(Function, BreadcrumbValueCache)}.</p>
+ * 
+ * @param <S>  the type of state
+ * @param <V>  the type of value associated with a state
+ */
+public class DefaultBreadcrumbModel<S, V> extends AbstractBreadcrumbModel<S, V> {
+	
+	private static final long serialVersionUID = 2290349582936110473L;
+	
+	/**
+	 * Policy used to choose which state is evicted when a state is added
+	 * to a breadcrumb at maximum depth.
+	 */
+	public static enum EvictionPolicy {
+		/** Evict the first (oldest) state */
+		OLDEST,
+		/** Keep the first (root) state and evict the state following it */
+		KEEP_ROOT
+	};
+	
+	private final static int DEFAULT_CAPACITY = 16;
+	
+	/** The states stack, stored as a circular array */
+	private Object[] states = new Object[DEFAULT_CAPACITY];
+	
+	/** Position of the first state in the circular array */
+	private int head = 0;
+	
+	/** Number of states */
+	private int count = 0;
+	
+	/**
+	 * Absolute position of the first state.  Absolute positions do not
+	 * change when states are evicted from the bottom of the stack.
+	 */
+	private long base = 0L;
+	
+	/** Maximum number of states, 0 if unbounded */
+	private int maximumDepth = 0;
+	
+	private EvictionPolicy evictionPolicy = EvictionPolicy.OLDEST;
+	
+	/** Read-only view of the states stack */
+	private transient List<S> statesView;
+	
+	/** The values stack, parallel to the states array */
+	private Object[] values = new Object[DEFAULT_CAPACITY];
+	
+	/** Read-only view of the values stack */
+	private transient List<V> valuesView;
+	
+	/**
+	 * Snapshot nodes, parallel to the states array.  Allocated by the
+	 * first call to {@link #snapshot()}.
+	 */
+	private transient Object[] nodes;
+	
+	/**
+	 * Number of states, from the bottom of the stack, whose snapshot
+	 * node is up to date
+	 */
+	private transient int validNodes = 0;
+	
+	/** Position of the first occurrence and number of occurrences of each state */
+	private final HashMap<S, IndexEntry> indexMap = new HashMap<>();
+	
+	/** Maximum number of forward history entries, 0 if disabled */
+	private int forwardHistoryLimit = 0;
+	
+	/** Maximum estimated size of forward history values in bytes, 0 if unbounded */
+	private long forwardHistoryByteLimit = 0L;
+	
+	/** Whether values are kept in the forward history */
+	private boolean retainForwardValues = true;
+	
+	/** Estimates the size of values in the forward history */
+	private transient ToLongFunction<? super V> valueSizeEstimator;
+	
+	/** Forward history, the next state is first */
+	private transient ArrayDeque<ForwardEntry<S, V>> forwardHistory;
+	
+	/** Estimated size of forward history values in bytes */
+	private transient long forwardHistoryBytes = 0L;
+	
+	/** Loads values on demand, <code>null</code> if values are stored */
+	private transient Function<? super S, ? extends V> valueLoader;
+	
+	/** Loaded values by state, used with the value loader */
+	private transient BreadcrumbValueCache<S, V> valueCache;
+	
+	/**
+	 * Creates a new empty breadcrumb model.
+	 */
+	public DefaultBreadcrumbModel() {
+		super();
+	}
+	
+	/**
+	 * Creates a new empty breadcrumb model with a maximum depth.
+	 * 
+	 * @param maximumDepth  the maximum number of states, 0 for unbounded
+	 * @param evictionPolicy  policy used to evict states when the maximum depth is reached
+	 */
+	public DefaultBreadcrumbModel(int maximumDepth, EvictionPolicy evictionPolicy) {
+		super();
+		if(maximumDepth < 0)
+			throw new IllegalArgumentException("Maximum depth must not be negative");
+		this.maximumDepth = maximumDepth;
+		this.evictionPolicy = Objects.requireNonNull(evictionPolicy);
+	}
+	
+	/**
+	 * Creates a new empty breadcrumb model which reports the given
+	 * model as the source of events.
+	 * 
+	 * @param source  the event source
+	 */
+	DefaultBreadcrumbModel(BreadcrumbModel<S, V> source) {
+		super(source);
+	}
+	
+	/**
+	 * Gets the maximum number of states in this breadcrumb.
+	 * 
+	 * @return the maximum depth, 0 if unbounded
+	 */
+	public int getMaximumDepth() {
+		return maximumDepth;
+	}
+	
+	/**
+	 * Sets the maximum number of states in this breadcrumb.  If the
+	 * breadcrumb currently has more states, states are evicted
+	 * immediately.
+	 * 
+	 * @param maximumDepth  the maximum depth, 0 for unbounded
+	 * 
+	 * @throws IllegalArgumentException  if maximumDepth is negative
+	 */
+	public void setMaximumDepth(int maximumDepth) {
+		if(maximumDepth < 0)
+			throw new IllegalArgumentException("Maximum depth must not be negative");
+		this.maximumDepth = maximumDepth;
+		if(maximumDepth > 0 && count > maximumDepth) {
+			beginUpdate();
+			try {
+				while(count > maximumDepth)
+					evict();
+			} finally {
+				endUpdate();
+			}
+		}
+		if(maximumDepth > 0 && states.length > maximumDepth)
+			resize(maximumDepth);
+	}
+	
+	/**
+	 * Gets the policy used to evict states when the maximum depth is reached.
+	 * 
+	 * @return the eviction policy
+	 */
+	public EvictionPolicy getEvictionPolicy() {
+		return evictionPolicy;
+	}
+	
+	/**
+	 * Sets the policy used to evict states when the maximum depth is reached.
+	 * 
+	 * @param evictionPolicy  the eviction policy
+	 */
+	public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+		this.evictionPolicy = Objects.requireNonNull(evictionPolicy);
+	}
+	
+	@Override
+	public int size() {
+		return count;
+	}
+	
+	@Override
+	public boolean containsState(S state) {
+		return indexMap.containsKey(state);
+	}
+	
+	@Override
+	public S getCurrentState() {
+		return (count == 0 ? null : stateAt(count-1));
+	}
+	
+	@Override
+	public V getCurrentValue() {
+		return (count == 0 ? null : valueAt(count-1));
+	}
+	
+	@Override
+	public int getIndexOfState(S state) {
+		return indexOf(state);
+	}
+	
+	@Override
+	public S peekState(int index) {
+		Objects.checkIndex(index, count);
+		return stateAt(index);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>Returns the value of the first occurrence of the state.</p>
+	 */
+	@Override
+	public V getValue(S state) {
+		final int index = indexOf(state);
+		return (index >= 0 ? valueAt(index) : null);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>Sets the value of the first occurrence of the state.</p>
+	 */
+	@Override
+	public void setValue(S state, V value) {
+		final int index = indexOf(state);
+		if(index >= 0) {
+			final V oldValue = (hasBreadcrumbListeners() ? residentValueAt(index) : null);
+			// loaded values are shared by all occurrences of the state
+			final int lastIndex = (valueLoader != null && indexMap.get(state).count > 1 ? count - 1 : index);
+			if(valueLoader != null)
+				valueCache.put(state, value);
+			else
+				values[slot(index)] = value;
+			validNodes = Math.min(validNodes, index);
+			fireValueChanged(index, lastIndex, state, oldValue, value);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>If a value loader is set, returns the cached value of the state
+	 * without loading it.</p>
+	 */
+	@Override
+	public V getValueIfPresent(S state) {
+		final int index = indexOf(state);
+		return (index >= 0 ? residentValueAt(index) : null);
+	}
+	
+	@Override
+	public V getValueAt(int index) {
+		Objects.checkIndex(index, count);
+		return valueAt(index);
+	}
+	
+	@Override
+	public V getValueIfPresentAt(int index) {
+		Objects.checkIndex(index, count);
+		return residentValueAt(index);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>If a value loader is set, values are cached by state and the
+	 * value is shared by all occurrences of the state.</p>
+	 */
+	@Override
+	public void setValueAt(int index, V value) {
+		Objects.checkIndex(index, count);
+		final S state = stateAt(index);
+		final V oldValue = (hasBreadcrumbListeners() ? residentValueAt(index) : null);
+		int firstIndex = index;
+		int lastIndex = index;
+		if(valueLoader != null && indexMap.get(state).count > 1) {
+			// loaded values are shared by all occurrences of the state
+			firstIndex = indexOf(state);
+			lastIndex = count - 1;
+		}
+		if(valueLoader != null)
+			valueCache.put(state, value);
+		else
+			values[slot(index)] = value;
+		validNodes = Math.min(validNodes, firstIndex);
+		fireValueChanged(firstIndex, lastIndex, state, oldValue, value);
+	}
+	
+	@Override
+	public List<S> getStates() {
+		if(statesView == null)
+			statesView = new StatesView();
+		return statesView;
+	}
+	
+	@Override
+	public Collection<V> getValues() {
+		if(valuesView == null)
+			valuesView = new ValuesView();
+		return valuesView;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>The forward history is also cleared.</p>
+	 */
+	@Override
+	public void clear() {
+		clearForwardHistory();
+		if(count > 0) {
+			final S oldState = getCurrentState();
+			final V oldValue = (hasBreadcrumbListeners() ? residentValueAt(count-1) : null);
+			final int lastIndex = count - 1;
+			truncate(0);
+			fireCleared(lastIndex, oldState, oldValue);
+		}
+	}
+	
+	@Override
+	public EntrySet<S, V> popState() {
+		EntrySet<S, V> retVal = null;
+		if(count > 0) {
+			final S state = getCurrentState();
+			final V value = residentValueAt(count-1);
+			retainForwardHistory(count-1);
+			truncate(count-1);
+			
+			fireStatesRemoved(count, count, state, value);
+			fireStateChanged(count-1, state, value, getCurrentState());
+			
+			retVal = new EntrySet<>(state, value);
+		}
+		return retVal;
+	}
+	
+	@Override
+	public void gotoState(S state) {
+		if(!containsState(state)) return;
+		// scan from the top so that the last occurrence is used, cost is
+		// proportional to the number of states removed
+		int index = count - 1;
+		while(index >= 0 && !Objects.equals(stateAt(index), state)) --index;
+		gotoIndex(index);
+	}
+	
+	@Override
+	public void gotoIndex(int index) {
+		Objects.checkIndex(index, count);
+		final S oldState = getCurrentState();
+		final V oldValue = (hasBreadcrumbListeners() ? residentValueAt(count-1) : null);
+		final S state = stateAt(index);
+		final int lastIndex = count - 1;
+		if(index < lastIndex) {
+			retainForwardHistory(index + 1);
+			truncate(index + 1);
+			fireStatesRemoved(index + 1, lastIndex, oldState, oldValue);
+		}
+		
+		fireStateChanged(index, oldState, oldValue, state);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>States and values which already match the start of the given
+	 * list are kept, only the remaining states are removed and added.
+	 * The breadcrumb is updated as a single batch update, reporting only
+	 * the changed positions.  The forward history is cleared.</p>
+	 */
+	@Override
+	public void set(List<EntrySet<S, V>> states) {
+		clearForwardHistory();
+		int common = 0;
+		for(EntrySet<S, V> entry : states) {
+			if(common == count
+					|| !Objects.equals(stateAt(common), entry.getState())
+					|| !Objects.equals(residentValueAt(common), entry.getValue()))
+				break;
+			++common;
+		}
+		if(common == count && common == states.size()) return;
+		
+		beginUpdate();
+		try {
+			final S oldState = getCurrentState();
+			if(common < count) {
+				final int lastIndex = count - 1;
+				truncate(common);
+				fireStatesRemoved(common, lastIndex, oldState, null);
+			}
+			for(EntrySet<S, V> state : states.subList(common, states.size())) {
+				final int index = push(state.getState(), state.getValue());
+				fireStateAdded(index, state.getState(), state.getValue());
+			}
+			
+			fireStateChanged(count-1, oldState, null, getCurrentState());
+		} finally {
+			endUpdate();
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>The forward history is cleared.</p>
+	 */
+	@Override
+	public void addState(S state, V value) {
+		clearForwardHistory();
+		final S oldState = getCurrentState();
+		final V oldValue = (hasBreadcrumbListeners() ? getCurrentValueIfPresent() : null);
+		final int index = push(state, value);
+		fireStateAdded(index, state, value);
+		fireStateChanged(index, oldState, oldValue, state);
+	}
+	
+	//
+	// Snapshots
+	//
+	
+	/**
+	 * Takes an immutable snapshot of the states and values of this
+	 * breadcrumb.  Snapshot entries are created only for positions
+	 * modified since the previous snapshot, so taking a snapshot after
+	 * each navigation requires constant time.  After a state has been
+	 * evicted, the next snapshot copies all states, i.e., at most the
+	 * maximum depth.
+	 * 
+	 * @return the snapshot
+	 */
+	public BreadcrumbSnapshot<S, V> snapshot() {
+		if(count == 0) return new BreadcrumbSnapshot<>(null);
+		if(nodes == null) nodes = new Object[states.length];
+		
+		Node<S, V> node = (validNodes > 0 ? nodeAt(validNodes-1) : null);
+		for(int i = validNodes; i < count; i++) {
+			node = new Node<>(stateAt(i), residentValueAt(i), node);
+			nodes[slot(i)] = node;
+		}
+		validNodes = count;
+		return new BreadcrumbSnapshot<>(node);
+	}
+	
+	/**
+	 * Restores the states and values of a snapshot.  States shared by the
+	 * snapshot and this breadcrumb, i.e., the prefix which has not been
+	 * modified since the snapshot was taken, are kept; only the remaining
+	 * states are removed and added.  The breadcrumb is updated as a single
+	 * batch update.  The forward history is cleared.
+	 * 
+	 * @param snapshot  the snapshot to restore
+	 */
+	public void restore(BreadcrumbSnapshot<S, V> snapshot) {
+		Objects.requireNonNull(snapshot);
+		clearForwardHistory();
+		
+		// find the deepest node shared with this breadcrumb
+		Node<S, V> node = snapshot.getTop();
+		while(node != null && !(node.depth <= validNodes && nodeAt(node.depth-1) == node))
+			node = node.parent;
+		final int common = (node != null ? node.depth : 0);
+		if(common == count && common == snapshot.size()) return;
+		
+		@SuppressWarnings("unchecked")
+		final Node<S, V>[] added = (Node<S, V>[])new Node<?, ?>[snapshot.size() - common];
+		node = snapshot.getTop();
+		for(int i = added.length - 1; i >= 0; i--, node = node.parent)
+			added[i] = node;
+		
+		if(nodes == null) nodes = new Object[states.length];
+		beginUpdate();
+		try {
+			final S oldState = getCurrentState();
+			if(common < count) {
+				final int lastIndex = count - 1;
+				truncate(common);
+				fireStatesRemoved(common, lastIndex, oldState, null);
+			}
+			for(Node<S, V> addedNode : added) {
+				final int index = push(addedNode.state, addedNode.value);
+				if(validNodes == index) {
+					// reuse the snapshot node unless an eviction broke the chain
+					nodes[slot(index)] = addedNode;
+					++validNodes;
+				}
+				fireStateAdded(index, addedNode.state, addedNode.value);
+			}
+			fireStateChanged(count-1, oldState, null, getCurrentState());
+		} finally {
+			endUpdate();
+		}
+	}
+	
+	//
+	// Forward history
+	//
+	
+	/**
+	 * Gets the maximum number of states kept in the forward history.
+	 * 
+	 * @return the maximum number of entries, 0 if forward history is disabled
+	 */
+	public int getForwardHistoryLimit() {
+		return forwardHistoryLimit;
+	}
+	
+	/**
+	 * Sets the maximum number of states kept in the forward history.  When
+	 * the limit is exceeded the states farthest from the current state are
+	 * dropped.
+	 * 
+	 * @param forwardHistoryLimit  the maximum number of entries, 0 to
+	 *                             disable forward history
+	 * 
+	 * @throws IllegalArgumentException  if forwardHistoryLimit is negative
+	 */
+	public void setForwardHistoryLimit(int forwardHistoryLimit) {
+		if(forwardHistoryLimit < 0)
+			throw new IllegalArgumentException("Forward history limit must not be negative");
+		this.forwardHistoryLimit = forwardHistoryLimit;
+		trimForwardHistory();
+	}
+	
+	/**
+	 * Gets the maximum estimated size of values kept in the forward history.
+	 * 
+	 * @return the maximum size in bytes, 0 if unbounded
+	 */
+	public long getForwardHistoryByteLimit() {
+		return forwardHistoryByteLimit;
+	}
+	
+	/**
+	 * Sets the maximum estimated size of values kept in the forward
+	 * history.  Sizes are computed by the value size estimator, the limit
+	 * has no effect if no estimator is set.
+	 * 
+	 * @param forwardHistoryByteLimit  the maximum size in bytes, 0 for unbounded
+	 * 
+	 * @throws IllegalArgumentException  if forwardHistoryByteLimit is negative
+	 * 
+	 * @see #setValueSizeEstimator(ToLongFunction)
+	 */
+	public void setForwardHistoryByteLimit(long forwardHistoryByteLimit) {
+		if(forwardHistoryByteLimit < 0L)
+			throw new IllegalArgumentException("Forward history byte limit must not be negative");
+		this.forwardHistoryByteLimit = forwardHistoryByteLimit;
+		trimForwardHistory();
+	}
+	
+	/**
+	 * Gets the function used to estimate the size of values in the
+	 * forward history.
+	 * 
+	 * @return the value size estimator, may be <code>null</code>
+	 */
+	public ToLongFunction<? super V> getValueSizeEstimator() {
+		return valueSizeEstimator;
+	}
+	
+	/**
+	 * Sets the function used to estimate the size, in bytes, of values
+	 * in the forward history.  The estimator is called once for each value
+	 * entering the forward history.
+	 * 
+	 * @param valueSizeEstimator  the value size estimator, may be <code>null</code>
+	 */
+	public void setValueSizeEstimator(ToLongFunction<? super V> valueSizeEstimator) {
+		this.valueSizeEstimator = valueSizeEstimator;
+	}
+	
+	/**
+	 * Gets whether values are kept in the forward history.
+	 * 
+	 * @return <code>true</code> if values are kept
+	 */
+	public boolean isRetainForwardValues() {
+		return retainForwardValues;
+	}
+	
+	/**
+	 * Sets whether values are kept in the forward history.  If not, only
+	 * states are kept and states are restored by {@link #goForward()}
+	 * with a <code>null</code> value.  Applies to states entering the
+	 * forward history after this call.
+	 * 
+	 * @param retainForwardValues  <code>true</code> to keep values
+	 */
+	public void setRetainForwardValues(boolean retainForwardValues) {
+		this.retainForwardValues = retainForwardValues;
+	}
+	
+	/**
+	 * Gets the states in the forward history.
+	 * 
+	 * @return the forward states, the state restored by the next call to
+	 *         {@link #goForward()} is first
+	 */
+	public List<S> getForwardStates() {
+		if(forwardHistory == null || forwardHistory.isEmpty())
+			return Collections.emptyList();
+		final List<S> retVal = new ArrayList<>(forwardHistory.size());
+		for(ForwardEntry<S, V> entry : forwardHistory)
+			retVal.add(entry.state);
+		return Collections.unmodifiableList(retVal);
+	}
+	
+	/**
+	 * Removes all states from the forward history.
+	 */
+	public void clearForwardHistory() {
+		if(forwardHistory != null && !forwardHistory.isEmpty()) {
+			forwardHistory.clear();
+			forwardHistoryBytes = 0L;
+		}
+	}
+	
+	/**
+	 * Gets whether {@link #goBack()} will change the current state.
+	 * 
+	 * @return <code>true</code> if there is a state before the current state
+	 */
+	public boolean canGoBack() {
+		return count > 1;
+	}
+	
+	/**
+	 * Gets whether {@link #goForward()} will change the current state.
+	 * 
+	 * @return <code>true</code> if the forward history is not empty
+	 */
+	public boolean canGoForward() {
+		return forwardHistory != null && !forwardHistory.isEmpty();
+	}
+	
+	/**
+	 * Moves the current state to the forward history, making the
+	 * previous state current.  Does nothing if there is no previous state.
+	 * 
+	 * @return <code>true</code> if the current state changed
+	 */
+	public boolean goBack() {
+		if(!canGoBack()) return false;
+		popState();
+		return true;
+	}
+	
+	/**
+	 * Adds the first state of the forward history back onto the
+	 * breadcrumb.  Unlike {@link #addState(Object, Object)}, the remaining
+	 * forward history is kept.
+	 * 
+	 * @return <code>true</code> if the current state changed
+	 */
+	public boolean goForward() {
+		if(!canGoForward()) return false;
+		final ForwardEntry<S, V> entry = forwardHistory.pollFirst();
+		forwardHistoryBytes -= entry.bytes;
+		
+		final S oldState = getCurrentState();
+		final V oldValue = (hasBreadcrumbListeners() ? getCurrentValueIfPresent() : null);
+		final int index = push(entry.state, entry.value);
+		fireStateAdded(index, entry.state, entry.value);
+		fireStateChanged(index, oldState, oldValue, entry.state);
+		return true;
+	}
+	
+	/**
+	 * Moves states at or above the given index to the forward history.
+	 * Must be called before the states are truncated.
+	 * 
+	 * @param fromIndex  the index of the first state to be removed
+	 */
+	private void retainForwardHistory(int fromIndex) {
+		if(forwardHistoryLimit == 0) return;
+		if(forwardHistory == null)
+			forwardHistory = new ArrayDeque<>();
+		
+		// only the states nearest the current state fit within the limit
+		final int lastIndex = Math.min(count, fromIndex + forwardHistoryLimit) - 1;
+		if(lastIndex < count - 1)
+			clearForwardHistory();
+		for(int i = lastIndex; i >= fromIndex; i--) {
+			final V value = (retainForwardValues ? residentValueAt(i) : null);
+			final long bytes = (value != null && valueSizeEstimator != null ? valueSizeEstimator.applyAsLong(value) : 0L);
+			forwardHistory.addFirst(new ForwardEntry<>(stateAt(i), value, bytes));
+			forwardHistoryBytes += bytes;
+		}
+		trimForwardHistory();
+	}
+	
+	/**
+	 * Drops the states farthest from the current state until the forward
+	 * history is within its limits.
+	 */
+	private void trimForwardHistory() {
+		if(forwardHistory == null) return;
+		while(forwardHistory.size() > forwardHistoryLimit
+				|| (forwardHistoryByteLimit > 0L && forwardHistoryBytes > forwardHistoryByteLimit)) {
+			forwardHistoryBytes -= forwardHistory.pollLast().bytes;
+		}
+	}
+	
+	//
+	// Value loading
+	//
+	
+	/**
+	 * Gets the function used to load values.
+	 * 
+	 * @return the value loader, <code>null</code> if values are stored
+	 */
+	public Function<? super S, ? extends V> getValueLoader() {
+		return valueLoader;
+	}
+	
+	/**
+	 * Gets the cache of loaded values.
+	 * 
+	 * @return the value cache, <code>null</code> if values are stored
+	 */
+	public BreadcrumbValueCache<S, V> getValueCache() {
+		return valueCache;
+	}
+	
+	/**
+	 * Sets a function used to load values on demand.  Values are no
+	 * longer held by the breadcrumb: values given to
+	 * {@link #addState(Object, Object)} or {@link #setValue(Object, Object)},
+	 * and values returned by the loader, are kept in the given cache and
+	 * loaded again by {@link #getValue(Object)} or {@link #getCurrentValue()}
+	 * once evicted.  Since values are loaded by state, all occurrences of a
+	 * state share a value.
+	 * 
+	 * <p>Operations which do not need a value, such as {@link #popState()},
+	 * snapshots and the forward history, use the cached value if present
+	 * and do not load it.  Renderers should use
+	 * {@link #getValueIfPresent(Object)}.</p>
+	 * 
+	 * <p>Values currently held by the breadcrumb are moved to the cache.
+	 * Since the cache holds one value per state, a loader may not be set
+	 * while a state occurs more than once with different values.  Setting
+	 * a <code>null</code> loader moves the values back into the
+	 * breadcrumb, values which are no longer cached are loaded first.</p>
+	 * 
+	 * @param valueLoader  loads the value of a state, <code>null</code> to store values
+	 * @param valueCache  cache for loaded values, ignored if valueLoader is
+	 *                    <code>null</code>
+	 * 
+	 * @throws NullPointerException  if valueLoader is given without a cache
+	 * @throws IllegalArgumentException  if values are stored and a state
+	 *                                   occurs more than once with different values
+	 */
+	public void setValueLoader(Function<? super S, ? extends V> valueLoader, BreadcrumbValueCache<S, V> valueCache) {
+		if(valueLoader != null) {
+			Objects.requireNonNull(valueCache);
+			if(this.valueLoader == null) {
+				// values are per position, they must agree before being shared by state
+				for(int i = 0; i < count; i++) {
+					final int first = indexOf(stateAt(i));
+					if(first < i && !Objects.equals(values[slot(first)], values[slot(i)]))
+						throw new IllegalArgumentException("State occurs with different values: " + stateAt(i));
+				}
+			}
+			for(int i = 0; i < count; i++) {
+				final V value = residentValueAt(i);
+				if(value != null)
+					valueCache.put(stateAt(i), value);
+				values[slot(i)] = null;
+			}
+		} else if(this.valueLoader != null) {
+			// load each state once, before any value is moved, so that all
+			// occurrences keep the same value and a failed load changes nothing
+			final Map<S, V> loadedValues = new HashMap<>();
+			for(int i = 0; i < count; i++) {
+				if(!loadedValues.containsKey(stateAt(i)))
+					loadedValues.put(stateAt(i), valueAt(i));
+			}
+			for(int i = 0; i < count; i++)
+				values[slot(i)] = loadedValues.get(stateAt(i));
+			valueCache = null;
+		}
+		this.valueLoader = valueLoader;
+		this.valueCache = valueCache;
+	}
+	
+	//
+	// Storage
+	//
+	
+	@SuppressWarnings("unchecked")
+	private S stateAt(int index) {
+		return (S)states[slot(index)];
+	}
+	
+	/**
+	 * Gets the value at the given index, loading it if necessary.
+	 * 
+	 * @param index  the index
+	 * 
+	 * @return the value
+	 */
+	@SuppressWarnings("unchecked")
+	private V valueAt(int index) {
+		if(valueLoader == null)
+			return (V)values[slot(index)];
+		
+		final S state = stateAt(index);
+		V retVal = valueCache.get(state);
+		if(retVal == null) {
+			retVal = valueLoader.apply(state);
+			valueCache.put(state, retVal);
+		}
+		return retVal;
+	}
+	
+	/**
+	 * Gets the index of the first occurrence of a state.  Used instead of
+	 * {@link #getIndexOfState(Object)} so that subclasses may override
+	 * the public readers, e.g., to take a lock, without reads re-entering
+	 * them.
+	 * 
+	 * @param state  the state
+	 * 
+	 * @return the index, -1 if not found
+	 */
+	private int indexOf(S state) {
+		final IndexEntry entry = indexMap.get(state);
+		return (entry != null ? (int)(entry.first - base) : -1);
+	}
+	
+	/**
+	 * Gets the value at the given index without loading it.
+	 * 
+	 * @param index  the index
+	 * 
+	 * @return the value, <code>null</code> if not loaded
+	 */
+	@SuppressWarnings("unchecked")
+	private V residentValueAt(int index) {
+		return (valueLoader == null ? (V)values[slot(index)] : valueCache.get(stateAt(index)));
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Node<S, V> nodeAt(int index) {
+		return (Node<S, V>)nodes[slot(index)];
+	}
+	
+	/**
+	 * Position in the circular array of the state at the given index.
+	 * 
+	 * @param index  the index of the state
+	 * 
+	 * @return the array position
+	 */
+	private int slot(int index) {
+		final int slot = head + index;
+		return (slot >= states.length ? slot - states.length : slot);
+	}
+	
+	/**
+	 * Re-allocates the circular array with the given capacity, moving the
+	 * first state to position 0.
+	 * 
+	 * @param capacity  the new capacity, must be at least {@link #size()}
+	 */
+	private void resize(int capacity) {
+		final Object[] newStates = new Object[capacity];
+		final Object[] newValues = new Object[capacity];
+		final Object[] newNodes = (nodes != null ? new Object[capacity] : null);
+		for(int i = 0; i < count; i++) {
+			final int slot = slot(i);
+			newStates[i] = states[slot];
+			newValues[i] = values[slot];
+			if(newNodes != null)
+				newNodes[i] = nodes[slot];
+		}
+		states = newStates;
+		values = newValues;
+		nodes = newNodes;
+		head = 0;
+	}
+	
+	/**
+	 * Pushes a state onto the stack, evicting a state first if the
+	 * breadcrumb is at maximum depth.
+	 * 
+	 * @param state  the state
+	 * @param value  the value
+	 * 
+	 * @return the index of the new state
+	 */
+	private int push(S state, V value) {
+		if(maximumDepth > 0 && count >= maximumDepth)
+			evict();
+		if(count == states.length) {
+			final int capacity = (maximumDepth > 0 ? Math.min(maximumDepth, count * 2) : count * 2);
+			resize(Math.max(capacity, Math.min(DEFAULT_CAPACITY, count + 1)));
+		}
+		final int index = count++;
+		final int slot = slot(index);
+		states[slot] = state;
+		if(valueLoader != null)
+			valueCache.put(state, value);
+		else
+			values[slot] = value;
+		
+		final IndexEntry entry = indexMap.get(state);
+		if(entry == null)
+			indexMap.put(state, new IndexEntry(base + index));
+		else
+			++entry.count;
+		return index;
+	}
+	
+	/**
+	 * Removes all states at or above the given index in a single
+	 * operation.  Index entries and cached values are only dropped for
+	 * states which do not also occur below the truncation point.
+	 * 
+	 * @param fromIndex  the index of the first state to remove
+	 */
+	private void truncate(int fromIndex) {
+		if(fromIndex == 0)
+			indexMap.clear();
+		for(int i = fromIndex; i < count; i++) {
+			final int slot = slot(i);
+			final S state = stateAt(i);
+			if(fromIndex == 0) {
+				if(valueLoader != null)
+					valueCache.remove(state);
+			} else {
+				final IndexEntry entry = indexMap.get(state);
+				if(--entry.count == 0) {
+					indexMap.remove(state);
+					if(valueLoader != null)
+						valueCache.remove(state);
+				}
+			}
+			states[slot] = null;
+			values[slot] = null;
+			if(nodes != null)
+				nodes[slot] = null;
+		}
+		count = fromIndex;
+		validNodes = Math.min(validNodes, fromIndex);
+	}
+	
+	/**
+	 * Evicts a single state according to the eviction policy.
+	 */
+	private void evict() {
+		final int index = (evictionPolicy == EvictionPolicy.KEEP_ROOT && count > 1 ? 1 : 0);
+		final S evictedState = stateAt(index);
+		final V evictedValue = residentValueAt(index);
+		final IndexEntry entry = indexMap.get(evictedState);
+		if(--entry.count == 0) {
+			indexMap.remove(evictedState);
+			if(valueLoader != null)
+				valueCache.remove(evictedState);
+		} else {
+			if(entry.first == base + index) {
+				// evicted the first of several occurrences, find the next one
+				int next = index + 1;
+				while(!Objects.equals(stateAt(next), evictedState)) ++next;
+				entry.first = base + next;
+			}
+		}
+		
+		if(index == 1) {
+			// move root into the evicted slot
+			final int slot = slot(1);
+			states[slot] = states[head];
+			values[slot] = values[head];
+			if(nodes != null)
+				nodes[slot] = nodes[head];
+			final IndexEntry rootEntry = indexMap.get(stateAt(1));
+			if(rootEntry.first == base)
+				rootEntry.first = base + 1;
+		}
+		states[head] = null;
+		values[head] = null;
+		if(nodes != null)
+			nodes[head] = null;
+		head = slot(1);
+		++base;
+		--count;
+		// nodes above the evicted state reference it
+		validNodes = Math.min(validNodes, index);
+		
+		fireStateEvicted(index, evictedState, evictedValue);
+	}
+	
+	/**
+	 * Position of the first occurrence and number of occurrences of a state.
+	 */
+	private final static class IndexEntry implements Serializable {
+		
+		private static final long serialVersionUID = 5185862342337566245L;
+		
+		/** Absolute position of the first occurrence */
+		long first;
+		
+		/** Number of occurrences */
+		int count = 1;
+		
+		IndexEntry(long first) {
+			this.first = first;
+		}
+	
+	}
+	
+	/**
+	 * State and value in the forward history.
+	 */
+	private final static class ForwardEntry<S, V> {
+		
+		final S state;
+		
+		final V value;
+		
+		/** Estimated size of the value */
+		final long bytes;
+		
+		ForwardEntry(S state, V value, long bytes) {
+			this.state = state;
+			this.value = value;
+			this.bytes = bytes;
+		}
+	
+	}
+	
+	/**
+	 * Read-only list view of the states stack.
+	 */
+	private final class StatesView extends AbstractList<S> implements RandomAccess {
+		
+		@Override
+		public S get(int index) {
+			Objects.checkIndex(index, count);
+			return stateAt(index);
+		}
+		
+		@Override
+		public int size() {
+			return count;
+		}
+	
+	}
+	
+	/**
+	 * Read-only list view of the values stack.
+	 */
+	private final class ValuesView extends AbstractList<V> implements RandomAccess {
+		
+		@Override
+		public V get(int index) {
+			Objects.checkIndex(index, count);
+			return valueAt(index);
+		}
+		
+		@Override
+		public int size() {
+			return count;
+		}
+	
+	}
+
+}
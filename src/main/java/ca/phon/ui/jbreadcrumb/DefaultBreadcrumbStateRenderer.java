@@ -15,18 +15,28 @@
  */
 package ca.phon.ui.jbreadcrumb;
 
+import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
 import java.awt.Insets;
 import java.awt.RenderingHints;
+import java.awt.Toolkit;
+import java.awt.Transparency;
 import java.awt.geom.Rectangle2D;
+import java.util.Map;
 
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.border.Border;
+import javax.swing.plaf.basic.BasicHTML;
+
+import ca.phon.ui.jbreadcrumb.BreadcrumbLabelCache.Label;
 
 /**
- * Default {@link Breadcrumb} state renderer.
+ * Default {@link Breadcrumb} state renderer.  Label text and its shaped
+ * layout are cached, see {@link BreadcrumbLabelCache}.
  *
  * @param <S>  the state type
  * @param <V>  the value type
@@ -35,6 +45,9 @@ public class DefaultBreadcrumbStateRenderer<S, V> extends JLabel implements Brea
 	
 	private static final long serialVersionUID = 2519454994582489644L;
 	
+	/** Text and shaped layouts of labels */
+	private transient BreadcrumbLabelCache labelCache = new BreadcrumbLabelCache();
+	
 	/**
 	 * Creates a new default breadcrumb state renderer.
 	 */
@@ -49,7 +62,8 @@ public class DefaultBreadcrumbStateRenderer<S, V> extends JLabel implements Brea
 			boolean hasFocus) {
 		
 		setFont(viewer.getFont());
-		setText(value.toString());
+		// use the state as a label if the value is not available
+		setText(getLabelCache().getText(value != null ? value : state));
 		
 		if(stateIdx == 0) {
 			setBorder(new BreadcrumbStateBorder(false));
@@ -68,6 +82,17 @@ public class DefaultBreadcrumbStateRenderer<S, V> extends JLabel implements Brea
 		return this;
 	}
 	
+	/**
+	 * Gets the cache of label text and layouts used by this renderer.
+	 * 
+	 * @return the label cache
+	 */
+	public BreadcrumbLabelCache getLabelCache() {
+		if(labelCache == null)
+			labelCache = new BreadcrumbLabelCache();
+		return labelCache;
+	}
+	
 	@Override
 	public int getComponentOffset() {
 		final Border border = getBorder();
@@ -90,7 +115,61 @@ public class DefaultBreadcrumbStateRenderer<S, V> extends JLabel implements Brea
 		g2.setColor(getBackground());
 		g2.fill(rect);
 		
-		super.paintComponent(g2);
+		if(getText() == null || !isEnabled() || getClientProperty(BasicHTML.propertyKey) != null || getIcon() != null
+				|| !isLeftAligned() || getVerticalAlignment() != CENTER) {
+			super.paintComponent(g2);
+			return;
+		}
+		
+		// draw the cached layout at the position and with the desktop text
+		// antialiasing hints, e.g., LCD text, used by the label UI
+		final Object desktopHints = Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+		if(desktopHints instanceof Map<?, ?>)
+			g2.addRenderingHints((Map<?, ?>)desktopHints);
+		// subpixel text blended into a translucent image shows colour fringes
+		if(isTranslucentImage(g2) && isLCDHint(g2.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING)))
+			g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		
+		// text which does not fit is truncated with an ellipsis by the label UI
+		final Label label = getLabelCache().getLabel(getText(), getFont(), g2.getFontRenderContext());
+		if(label.getWidth() > getWidth() - insets.left - insets.right) {
+			super.paintComponent(g2);
+			return;
+		}
+		
+		final FontMetrics fm = getFontMetrics(getFont());
+		final int viewHeight = getHeight() - insets.top - insets.bottom;
+		final int textY = insets.top + viewHeight / 2 - fm.getHeight() / 2 + fm.getAscent();
+		
+		g2.setColor(getForeground());
+		label.draw(g2, insets.left, textY);
+	}
+	
+	/**
+	 * Whether the graphics context draws into an image with an alpha
+	 * channel, such as the state images cached by {@link DefaultBreadcrumbUI}.
+	 */
+	private static boolean isTranslucentImage(Graphics2D g2) {
+		final GraphicsConfiguration gc = g2.getDeviceConfiguration();
+		return gc.getDevice().getType() == GraphicsDevice.TYPE_IMAGE_BUFFER
+				&& gc.getColorModel().getTransparency() != Transparency.OPAQUE;
+	}
+	
+	private static boolean isLCDHint(Object textAntialiasing) {
+		return textAntialiasing == RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HRGB
+				|| textAntialiasing == RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HBGR
+				|| textAntialiasing == RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_VRGB
+				|| textAntialiasing == RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_VBGR;
+	}
+	
+	/**
+	 * Whether the text is drawn at the left edge, the only position
+	 * drawn without the label UI.
+	 */
+	private boolean isLeftAligned() {
+		final int alignment = getHorizontalAlignment();
+		if(alignment == LEFT) return true;
+		return (getComponentOrientation().isLeftToRight() ? alignment == LEADING : alignment == TRAILING);
 	}
 
 }
@@ -15,22 +15,46 @@
  */
 package ca.phon.ui.jbreadcrumb;
 
+import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.event.MouseEvent;
-import java.util.ArrayList;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.beans.PropertyChangeListener;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 import javax.swing.JComponent;
+import javax.swing.JLabel;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.event.MouseInputAdapter;
 
+import ca.phon.ui.jbreadcrumb.BreadcrumbEvent.BreadcrumbEventType;
+
 /**
  * Default UI implementation for {@link JBreadcrumb}. This class provides
  * the standard look and feel for breadcrumb components.
+ * 
+ * <p>The bounds of each state are measured once and cached.  The layout
+ * is updated incrementally by breadcrumb events: added states are
+ * measured when needed, removed states are dropped and only states
+ * whose value changed are measured again.  Changes to the renderer, font
+ * or colors of the component invalidate the whole layout.  States are
+ * labelled by their value only while it is loaded, a state whose value
+ * was loaded or evicted since it was measured is measured again when
+ * painted.</p>
+ * 
+ * <p>Only states intersecting the clip bounds are painted.  Rendered
+ * states may optionally be cached as images, see
+ * {@link #setImageCacheSize(long)}.</p>
  */
 public class DefaultBreadcrumbUI extends BreadcrumbUI {
 	
@@ -53,9 +77,44 @@ public class DefaultBreadcrumbUI extends BreadcrumbUI {
 		UIManager.getDefaults().put(STATE_FOREGROUND, UIManager.getColor("Button.foreground"));
 	}
 		
+	/** Properties of the component which invalidate the layout */
+	private final static List<String> LAYOUT_PROPERTIES = Arrays.asList("stateRenderer", "font",
+			"stateBackground", "stateForeground", "currentStateBackround", "currentStateForeground");
+		
 	private JBreadcrumb<? super Object, ? super Object> jBreadcrumb;
 	
-	private final List<Rectangle> stateRects = new ArrayList<>();
+	//
+	// Layout
+	//
+	
+	/** Returned by {@link #stateAt(BreadcrumbModel, int)} for removed states, states may be <code>null</code> */
+	private final static Object NO_STATE = new Object();
+	
+	/** Number of states, from the start of the breadcrumb, whose bounds are valid */
+	private int layoutSize = 0;
+	
+	/**
+	 * x position of each state.  The entry following the last valid state
+	 * is the position of the next state to be added.
+	 */
+	private int[] stateX = new int[17];
+	
+	private int[] stateWidths = new int[16];
+	
+	private int[] stateHeights = new int[16];
+	
+	/** Maximum height of the states up to and including each state */
+	private int[] maxHeights = new int[16];
+	
+	/** Whether the value of each state was loaded when it was measured */
+	private boolean[] stateResident = new boolean[16];
+	
+	//
+	// Image cache
+	//
+	
+	/** Rendered state images, <code>null</code> if disabled */
+	private BreadcrumbValueCache<StateImageKey, BufferedImage> imageCache;
 
 	/**
 	 * Creates a new DefaultBreadcrumbUI.
@@ -85,9 +144,9 @@ public class DefaultBreadcrumbUI extends BreadcrumbUI {
 		jBreadcrumb.setCurrentStateBackground(UIManager.getColor(CURRENT_STATE_BACKGROUND));
 		
 		jBreadcrumb.addMouseListener(mouseInputAdapter);
-		jBreadcrumb.addPropertyChangeListener("model", (e) -> 
-			jBreadcrumb.getBreadcrumb().addBreadcrumbListener(breadcrumbListener) );
-		jBreadcrumb.getBreadcrumb().addBreadcrumbListener(breadcrumbListener);
+		jBreadcrumb.addPropertyChangeListener("breadcrumb", breadcrumbPropertyListener);
+		jBreadcrumb.addPropertyChangeListener(layoutPropertyListener);
+		jBreadcrumb.getBreadcrumb().addBreadcrumbListener(breadcrumbListener, ExecutorBreadcrumbListener.EDT_EXECUTOR);
 	}
 	
 	@Override
@@ -95,69 +154,440 @@ public class DefaultBreadcrumbUI extends BreadcrumbUI {
 		super.uninstallUI(c);
 		
 		jBreadcrumb.removeMouseListener(mouseInputAdapter);
+		jBreadcrumb.removePropertyChangeListener("breadcrumb", breadcrumbPropertyListener);
+		jBreadcrumb.removePropertyChangeListener(layoutPropertyListener);
+		if(imageCache != null)
+			imageCache.clear();
 		jBreadcrumb.getBreadcrumb().removeBreadcrumbListener(breadcrumbListener);
 	}
 
 	@Override
 	public void paint(Graphics g, JComponent c) {
-		g.fillRect(0, 0, jBreadcrumb.getWidth(), jBreadcrumb.getHeight());
+		Rectangle clip = g.getClipBounds();
+		if(clip == null)
+			clip = new Rectangle(0, 0, jBreadcrumb.getWidth(), jBreadcrumb.getHeight());
+		g.fillRect(clip.x, clip.y, clip.width, clip.height);
+		
+		final BreadcrumbModel<Object, Object> breadcrumb = jBreadcrumb.getBreadcrumb();
+		final BreadcrumbStateRenderer<Object, Object> stateRenderer = jBreadcrumb.getStateRenderer();
 		
-		final Breadcrumb<Object, Object> breadcrumb = jBreadcrumb.getBreadcrumb();
-		synchronized(breadcrumb) {
-			final BreadcrumbStateRenderer<Object, Object> stateRenderer = jBreadcrumb.getStateRenderer();
+		// only the visible states are read, the model may be modified by other threads
+		ensureLayout();
+		final int breadcrumbSize = breadcrumb.size();
+		
+		final int size = Math.min(layoutSize, breadcrumbSize);
+		final int firstIndex = Math.max(0, firstStateAtX(clip.x));
+		final int endX = clip.x + clip.width;
+		for(int stateIndex = firstIndex; stateIndex < size && stateX[stateIndex] < endX; stateIndex++) {
+			final Object state = stateAt(breadcrumb, stateIndex);
+			// states were removed by another thread, the event will follow
+			if(state == NO_STATE) break;
+			final Object value = valueAt(breadcrumb, stateIndex);
+			if((value != null) != stateResident[stateIndex]) {
+				// the label changed without an event, move the following states
+				remeasureStates(stateIndex, stateIndex);
+				jBreadcrumb.revalidate();
+				jBreadcrumb.repaint();
+			}
 			
-			int x = 0;
-			stateRects.clear();
-			for(int stateIndex = 0; stateIndex < breadcrumb.size(); stateIndex++) {
-				final Object state = breadcrumb.getStates().get(stateIndex);
-				final Object value = breadcrumb.getValue(state);
-				
-				final JComponent comp = stateRenderer.createStateComponent(jBreadcrumb, stateIndex, state, value, false);
-				final Rectangle compRect = new Rectangle(x, 0, comp.getPreferredSize().width, comp.getPreferredSize().height);
-				SwingUtilities.paintComponent(g, comp, jBreadcrumb, compRect);
-				x += compRect.width + stateRenderer.getComponentOffset();
-				
-				stateRects.add(compRect);
+			final JComponent comp = stateRenderer.createStateComponent(jBreadcrumb, stateIndex, state, value, false);
+			final Rectangle bounds = getStateBounds(stateIndex);
+			if(imageCache == null || !paintStateImage(g, comp, bounds, stateIndex, stateIndex == breadcrumbSize-1))
+				SwingUtilities.paintComponent(g, comp, jBreadcrumb, bounds);
+		}
+	}
+	
+	/**
+	 * Gets the maximum size of the rendered state image cache.
+	 * 
+	 * @return the maximum size in bytes, 0 if images are not cached
+	 */
+	public long getImageCacheSize() {
+		return (imageCache != null ? imageCache.getMaximumWeight() : 0L);
+	}
+	
+	/**
+	 * Sets the maximum size of the rendered state image cache.  When
+	 * enabled, each state is rendered once into an image at the scale of
+	 * the graphics context, e.g., the display scale on HiDPI screens, and
+	 * copied on each paint.  Least recently used images are discarded when
+	 * the maximum size is reached.
+	 * 
+	 * <p>Images are identified by the text, font, colors, enabled and
+	 * focus state of the renderer component, the size of the state and
+	 * whether it is the first or current state.  The cache should only be
+	 * used with renderers whose appearance depends on nothing else.  Only
+	 * {@link JLabel} renderer components are cached.  Images have a
+	 * transparent background, text in cached images is drawn with
+	 * grayscale rather than LCD subpixel antialiasing.</p>
+	 * 
+	 * @param maximumBytes  the maximum size of cached images in bytes, 0 to disable the cache
+	 * 
+	 * @throws IllegalArgumentException  if maximumBytes is negative
+	 */
+	public void setImageCacheSize(long maximumBytes) {
+		if(maximumBytes < 0L)
+			throw new IllegalArgumentException("Image cache size must not be negative");
+		imageCache = (maximumBytes > 0L
+				? new BreadcrumbValueCache<>(0, maximumBytes, (image) -> 4L * image.getWidth() * image.getHeight(), false)
+				: null);
+	}
+	
+	/**
+	 * Paints a state using the image cache.
+	 * 
+	 * @param g  the graphics context
+	 * @param comp  the renderer component of the state
+	 * @param bounds  the bounds of the state
+	 * @param stateIndex  the index of the state
+	 * @param current  whether the state is the current state
+	 * 
+	 * @return <code>true</code> if the state was painted, <code>false</code>
+	 *         if the state cannot be cached
+	 */
+	private boolean paintStateImage(Graphics g, JComponent comp, Rectangle bounds, int stateIndex, boolean current) {
+		if(!(g instanceof Graphics2D) || !(comp instanceof JLabel)
+				|| bounds.width <= 0 || bounds.height <= 0) return false;
+		final Graphics2D g2 = (Graphics2D)g;
+		final AffineTransform transform = g2.getTransform();
+		// images can only be copied for translated and scaled graphics
+		if((transform.getType() & ~(AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_MASK_SCALE)) != 0)
+			return false;
+		final double scaleX = transform.getScaleX();
+		final double scaleY = transform.getScaleY();
+		
+		final StateImageKey key = new StateImageKey((JLabel)comp, bounds, stateIndex == 0, current, scaleX, scaleY);
+		BufferedImage image = imageCache.get(key);
+		if(image == null) {
+			image = new BufferedImage((int)Math.ceil(bounds.width * scaleX), (int)Math.ceil(bounds.height * scaleY),
+					BufferedImage.TYPE_INT_ARGB_PRE);
+			final Graphics2D imageGraphics = image.createGraphics();
+			try {
+				imageGraphics.scale(scaleX, scaleY);
+				// LCD subpixel text requires an opaque destination
+				imageGraphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+				SwingUtilities.paintComponent(imageGraphics, comp, jBreadcrumb, 0, 0, bounds.width, bounds.height);
+			} finally {
+				imageGraphics.dispose();
 			}
+			imageCache.put(key, image);
 		}
+		
+		// copy image pixels to device pixels without scaling
+		final long x = Math.round(bounds.x * scaleX + transform.getTranslateX());
+		final long y = Math.round(bounds.y * scaleY + transform.getTranslateY());
+		g2.setTransform(AffineTransform.getTranslateInstance(x, y));
+		g2.drawImage(image, 0, 0, null);
+		g2.setTransform(transform);
+		return true;
 	}
 	
 	@Override
 	public Dimension getPreferredSize() {
-		int width = 0;
-		int height = 0;
-		
-		final Breadcrumb<Object, Object> breadcrumb = jBreadcrumb.getBreadcrumb();
-		for(int i = 0; i < breadcrumb.size(); i++) {
-			final Object state = jBreadcrumb.getBreadcrumb().getStates().get(i);
-			final JComponent comp = jBreadcrumb.getStateRenderer().createStateComponent(jBreadcrumb, i, state,
-					jBreadcrumb.getBreadcrumb().getValue(breadcrumb.get(i)), false);
-			width += comp.getPreferredSize().width;
-			if(i < breadcrumb.size()-1) width += jBreadcrumb.getStateRenderer().getComponentOffset();
-			
-			height = Math.max(height, comp.getPreferredSize().height);
+		ensureLayout();
+		if(layoutSize == 0) return new Dimension(0, 0);
+		
+		final int last = layoutSize - 1;
+		return new Dimension(stateX[last] + stateWidths[last], maxHeights[last]);
+	}
+	
+	/**
+	 * Finds the first state containing the given x position using a binary
+	 * search of state positions.  States may overlap the previous state
+	 * but never start before it.
+	 * 
+	 * @param x  the x position
+	 * 
+	 * @return the index of the first state containing x or, if no state
+	 *         contains x, the index of the last state starting before x;
+	 *         -1 if x is before the first state
+	 */
+	private int firstStateAtX(int x) {
+		int low = 0;
+		int high = layoutSize - 1;
+		int retVal = -1;
+		while(low <= high) {
+			final int mid = (low + high) >>> 1;
+			if(stateX[mid] <= x) {
+				retVal = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		// previous states may overlap x
+		while(retVal > 0 && stateX[retVal-1] + stateWidths[retVal-1] > x)
+			--retVal;
+		return retVal;
+	}
+	
+	/**
+	 * Gets the bounds of a state from the layout.
+	 * 
+	 * @param stateIndex  the index of the state, must be less than the layout size
+	 * 
+	 * @return the bounds of the state
+	 */
+	private Rectangle getStateBounds(int stateIndex) {
+		return new Rectangle(stateX[stateIndex], 0, stateWidths[stateIndex], stateHeights[stateIndex]);
+	}
+	
+	/**
+	 * Measures the states which are not part of the valid layout.
+	 */
+	private void ensureLayout() {
+		final BreadcrumbModel<Object, Object> breadcrumb = jBreadcrumb.getBreadcrumb();
+		final int size = breadcrumb.size();
+		// states may have been removed by another thread before the event is received
+		if(layoutSize > size)
+			layoutSize = size;
+		if(layoutSize == size) return;
+		
+		if(size >= stateWidths.length) {
+			final int capacity = Math.max(size, stateWidths.length * 2);
+			stateX = Arrays.copyOf(stateX, capacity + 1);
+			stateWidths = Arrays.copyOf(stateWidths, capacity);
+			stateHeights = Arrays.copyOf(stateHeights, capacity);
+			maxHeights = Arrays.copyOf(maxHeights, capacity);
+			stateResident = Arrays.copyOf(stateResident, capacity);
 		}
 		
-		return new Dimension(width, height);
+		int height = (layoutSize > 0 ? maxHeights[layoutSize-1] : 0);
+		for(int i = layoutSize; i < size; i++) {
+			final Object state = stateAt(breadcrumb, i);
+			// states were removed by another thread, the event will follow
+			if(state == NO_STATE) break;
+			stateX[i+1] = stateX[i] + measureState(breadcrumb, state, i);
+			height = Math.max(height, stateHeights[i]);
+			maxHeights[i] = height;
+			layoutSize = i + 1;
+		}
+	}
+	
+	/**
+	 * Measures a single state, updating its width and height.
+	 * 
+	 * @param breadcrumb  the breadcrumb
+	 * @param state  the state
+	 * @param stateIndex  the index of the state
+	 * 
+	 * @return the distance from the start of the state to the start of the next
+	 */
+	private int measureState(BreadcrumbModel<Object, Object> breadcrumb, Object state, int stateIndex) {
+		final BreadcrumbStateRenderer<Object, Object> stateRenderer = jBreadcrumb.getStateRenderer();
+		final Object value = valueAt(breadcrumb, stateIndex);
+		final JComponent comp = stateRenderer.createStateComponent(jBreadcrumb, stateIndex, state,
+				value, false);
+		final Dimension prefSize = comp.getPreferredSize();
+		stateResident[stateIndex] = (value != null);
+		stateWidths[stateIndex] = prefSize.width;
+		stateHeights[stateIndex] = prefSize.height;
+		return prefSize.width + stateRenderer.getComponentOffset();
+	}
+	
+	/**
+	 * Measures a range of states again, moving the states following them
+	 * without measuring them.
+	 * 
+	 * @param firstIndex  the index of the first state to measure
+	 * @param lastIndex  the index of the last state to measure
+	 */
+	private void remeasureStates(int firstIndex, int lastIndex) {
+		final BreadcrumbModel<Object, Object> breadcrumb = jBreadcrumb.getBreadcrumb();
+		if(breadcrumb.size() < layoutSize) {
+			// states were removed by another thread, the event will follow
+			invalidateLayout(firstIndex);
+			return;
+		}
+		final int last = Math.min(lastIndex, layoutSize - 1);
+		if(firstIndex < 0 || firstIndex > last) return;
+		
+		// distance the state at i has moved
+		int shift = 0;
+		for(int i = firstIndex; i <= last; i++) {
+			final Object state = stateAt(breadcrumb, i);
+			if(state == NO_STATE) {
+				invalidateLayout(i);
+				return;
+			}
+			final int nextX = stateX[i] + measureState(breadcrumb, state, i);
+			shift = nextX - stateX[i+1];
+			stateX[i+1] = nextX;
+		}
+		if(shift != 0) {
+			for(int i = last + 2; i <= layoutSize; i++)
+				stateX[i] += shift;
+		}
+		updateMaxHeights(firstIndex);
+	}
+	
+	/**
+	 * Removes a state from the layout, moving the states following it
+	 * without measuring them.
+	 * 
+	 * @param stateIndex  the index of the removed state
+	 */
+	private void removeState(int stateIndex) {
+		if(stateIndex < 0 || stateIndex >= layoutSize) return;
+		final int advance = stateX[stateIndex+1] - stateX[stateIndex];
+		final int moved = layoutSize - stateIndex - 1;
+		System.arraycopy(stateWidths, stateIndex + 1, stateWidths, stateIndex, moved);
+		System.arraycopy(stateHeights, stateIndex + 1, stateHeights, stateIndex, moved);
+		System.arraycopy(stateResident, stateIndex + 1, stateResident, stateIndex, moved);
+		for(int i = stateIndex; i < layoutSize; i++)
+			stateX[i] = stateX[i+1] - advance;
+		--layoutSize;
+		updateMaxHeights(stateIndex);
+		
+		// the first state is drawn without a tail
+		if(stateIndex == 0 && layoutSize > 0)
+			remeasureStates(0, 0);
+	}
+	
+	/**
+	 * Recomputes maximum heights starting at the given index.
+	 * 
+	 * @param fromIndex  the index of the first state whose height changed
+	 */
+	private void updateMaxHeights(int fromIndex) {
+		int height = (fromIndex > 0 ? maxHeights[fromIndex-1] : 0);
+		for(int i = fromIndex; i < layoutSize; i++) {
+			height = Math.max(height, stateHeights[i]);
+			maxHeights[i] = height;
+		}
+	}
+	
+	/**
+	 * Invalidates the layout of all states starting at the given index.
+	 * 
+	 * @param fromIndex  the index of the first state to measure again
+	 */
+	private void invalidateLayout(int fromIndex) {
+		layoutSize = Math.max(0, Math.min(layoutSize, fromIndex));
+	}
+	
+	/**
+	 * Gets the state at the given index.
+	 * 
+	 * @param breadcrumb  the breadcrumb
+	 * @param index  the index
+	 * 
+	 * @return the state, or {@link #NO_STATE} if the index no longer exists
+	 */
+	private Object stateAt(BreadcrumbModel<Object, Object> breadcrumb, int index) {
+		try {
+			return breadcrumb.peekState(index);
+		} catch (IndexOutOfBoundsException e) {
+			// states may have been removed by another thread
+			return NO_STATE;
+		}
+	}
+	
+	/**
+	 * Gets the value at the given index without loading it.
+	 * 
+	 * @param breadcrumb  the breadcrumb
+	 * @param index  the index
+	 * 
+	 * @return the value, or <code>null</code> if not loaded or the index
+	 *         no longer exists
+	 */
+	private Object valueAt(BreadcrumbModel<Object, Object> breadcrumb, int index) {
+		try {
+			return breadcrumb.getValueIfPresentAt(index);
+		} catch (IndexOutOfBoundsException e) {
+			// states may have been removed by another thread
+			return null;
+		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>States are found using a binary search of the layout, which is
+	 * measured if required, so that the result is available before the
+	 * component is painted.  If states overlap, the first state
+	 * containing the point is returned.</p>
+	 */
 	@Override
 	public int locationToStateIndex(Point p) {
-		int retVal = -1;
+		ensureLayout();
 		
-		for(int stateIndex = 0; stateIndex < stateRects.size(); stateIndex++) {
-			final Rectangle rect = stateRects.get(stateIndex);
-			if(rect.contains(p)) {
-				retVal = stateIndex;
-				break;
-			}
+		for(int stateIndex = Math.max(0, firstStateAtX(p.x));
+				stateIndex < layoutSize && stateX[stateIndex] <= p.x; stateIndex++) {
+			if(getStateBounds(stateIndex).contains(p))
+				return stateIndex;
 		}
-		
-		return retVal;
+		return -1;
+	}
+	
+	/**
+	 * Repaints the component starting at the given state.
+	 * 
+	 * @param stateIndex  the index of the first state to repaint
+	 */
+	private void repaintFrom(int stateIndex) {
+		final int x = stateX[Math.max(0, Math.min(stateIndex, layoutSize))];
+		jBreadcrumb.repaint(x, 0, Math.max(0, jBreadcrumb.getWidth() - x), jBreadcrumb.getHeight());
 	}
 	
 	private BreadcrumbListener<? super Object, ? super Object> breadcrumbListener = (evt) -> {
+		// index of the first state which must be repainted
+		int dirtyIndex = 0;
+		switch(evt.getEventType()) {
+		case STATE_ADDED:
+			// added states are measured when needed, the previous current state changes colors
+			dirtyIndex = evt.getStateIndex() - 1;
+			break;
+			
+		case GOTO_STATE:
+			dirtyIndex = evt.getStateIndex();
+			break;
+			
+		case STATE_REMOVED:
+		case STATES_CHANGED:
+			invalidateLayout(evt.getFirstIndex());
+			dirtyIndex = evt.getFirstIndex() - 1;
+			break;
+			
+		case VALUE_CHANGED:
+			remeasureStates(evt.getFirstIndex(), evt.getLastIndex());
+			dirtyIndex = evt.getFirstIndex();
+			break;
+			
+		case STATE_EVICTED:
+			removeState(evt.getStateIndex());
+			dirtyIndex = evt.getStateIndex();
+			break;
+			
+		case CLEARED:
+			invalidateLayout(0);
+			break;
+		}
+		jBreadcrumb.revalidate();
+		repaintFrom(dirtyIndex);
+	};
+	
+	@SuppressWarnings("unchecked")
+	private PropertyChangeListener breadcrumbPropertyListener = (e) -> {
+		if(e.getOldValue() != null)
+			((BreadcrumbModel<Object, Object>)e.getOldValue()).removeBreadcrumbListener(breadcrumbListener);
+		if(e.getNewValue() != null)
+			((BreadcrumbModel<Object, Object>)e.getNewValue()).addBreadcrumbListener(breadcrumbListener,
+					ExecutorBreadcrumbListener.EDT_EXECUTOR);
+		invalidateLayout(0);
 		jBreadcrumb.revalidate();
+		jBreadcrumb.repaint();
+	};
+	
+	private PropertyChangeListener layoutPropertyListener = (e) -> {
+		if(LAYOUT_PROPERTIES.contains(e.getPropertyName())) {
+			invalidateLayout(0);
+			if(imageCache != null)
+				imageCache.clear();
+			jBreadcrumb.revalidate();
+			jBreadcrumb.repaint();
+		}
 	};
 	
 	private MouseInputAdapter mouseInputAdapter = new MouseInputAdapter() {
@@ -165,14 +595,10 @@ public class DefaultBreadcrumbUI extends BreadcrumbUI {
 		@Override
 		public void mouseClicked(MouseEvent e) {
 			if(!jBreadcrumb.isEnabled()) return;
-			final Point p = e.getPoint();
-			final Breadcrumb<Object, Object> breadcrumb = jBreadcrumb.getBreadcrumb();
-			for(int i = 0; i < stateRects.size(); i++) {
-				if(stateRects.get(i).contains(p)) {
-					breadcrumb.gotoState(breadcrumb.getStates().get(i));
-					break;
-				}
-			}
+			final BreadcrumbModel<Object, Object> breadcrumb = jBreadcrumb.getBreadcrumb();
+			final int stateIndex = locationToStateIndex(e.getPoint());
+			if(stateIndex >= 0 && stateIndex < breadcrumb.size())
+				breadcrumb.gotoIndex(stateIndex);
 		}
 
 		@Override
@@ -189,4 +615,68 @@ public class DefaultBreadcrumbUI extends BreadcrumbUI {
 		
 	};
 	
+	/**
+	 * Inputs which determine the appearance of a rendered state.
+	 */
+	private final static class StateImageKey {
+		
+		private final String text;
+		
+		private final Font font;
+		
+		private final Color background;
+		
+		private final Color foreground;
+		
+		private final boolean enabled;
+		
+		private final boolean focused;
+		
+		private final boolean first;
+		
+		private final boolean current;
+		
+		private final int width;
+		
+		private final int height;
+		
+		private final double scaleX;
+		
+		private final double scaleY;
+		
+		StateImageKey(JLabel label, Rectangle bounds, boolean first, boolean current, double scaleX, double scaleY) {
+			this.text = label.getText();
+			this.font = label.getFont();
+			this.background = label.getBackground();
+			this.foreground = label.getForeground();
+			this.enabled = label.isEnabled();
+			this.focused = label.hasFocus();
+			this.first = first;
+			this.current = current;
+			this.width = bounds.width;
+			this.height = bounds.height;
+			this.scaleX = scaleX;
+			this.scaleY = scaleY;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof StateImageKey)) return false;
+			final StateImageKey other = (StateImageKey)obj;
+			return Objects.equals(text, other.text) && Objects.equals(font, other.font)
+					&& Objects.equals(background, other.background) && Objects.equals(foreground, other.foreground)
+					&& enabled == other.enabled && focused == other.focused
+					&& first == other.first && current == other.current
+					&& width == other.width && height == other.height
+					&& scaleX == other.scaleX && scaleY == other.scaleY;
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hash(text, font, background, foreground, enabled, focused, first, current,
+					width, height, scaleX, scaleY);
+		}
+		
+	}
+	
 }
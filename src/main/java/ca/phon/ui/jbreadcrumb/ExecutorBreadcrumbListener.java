@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Breadcrumb listener which delivers events to another listener using an
+ * {@link Executor}.  Events are delivered one at a time and in the order
+ * they were fired, even if the executor runs tasks concurrently.
+ * 
+ * <p>Use {@link BreadcrumbModel#addBreadcrumbListener(BreadcrumbListener, Executor)}
+ * to register a listener with an executor, for example a virtual thread
+ * executor for listeners which load data or {@link #EDT_EXECUTOR} for
+ * listeners which update Swing components.</p>
+ * 
+ * @param <S>  the type of state
+ * @param <V>  the type of value associated with a state
+ */
+public class ExecutorBreadcrumbListener<S, V> implements BreadcrumbListener<S, V> {
+	
+	/**
+	 * Executor which runs tasks on the event dispatch thread.  Tasks are
+	 * run immediately if already on the event dispatch thread, otherwise
+	 * they are scheduled with {@link SwingUtilities#invokeLater(Runnable)}.
+	 */
+	public final static Executor EDT_EXECUTOR = (r) -> {
+		if(SwingUtilities.isEventDispatchThread())
+			r.run();
+		else
+			SwingUtilities.invokeLater(r);
+	};
+	
+	private final BreadcrumbListener<S, V> delegate;
+	
+	private final Executor executor;
+	
+	/** Events waiting to be delivered */
+	private final ConcurrentLinkedQueue<BreadcrumbEvent<S, V>> queue = new ConcurrentLinkedQueue<>();
+	
+	/** Set while a delivery task is scheduled or running */
+	private final AtomicBoolean scheduled = new AtomicBoolean(false);
+	
+	/**
+	 * Creates a new listener delivering events to the given listener
+	 * using the given executor.
+	 * 
+	 * @param delegate  the listener receiving events
+	 * @param executor  the executor used to deliver events
+	 */
+	public ExecutorBreadcrumbListener(BreadcrumbListener<S, V> delegate, Executor executor) {
+		super();
+		if(delegate == null || executor == null)
+			throw new NullPointerException();
+		this.delegate = delegate;
+		this.executor = executor;
+	}
+	
+	/**
+	 * Gets the listener receiving events.
+	 * 
+	 * @return the delegate listener
+	 */
+	public BreadcrumbListener<S, V> getDelegate() {
+		return delegate;
+	}
+	
+	/**
+	 * Gets the executor used to deliver events.
+	 * 
+	 * @return the executor
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+	
+	@Override
+	public void breadCrumbEvent(BreadcrumbEvent<S, V> event) {
+		queue.add(event);
+		schedule();
+	}
+	
+	private void schedule() {
+		if(scheduled.compareAndSet(false, true)) {
+			try {
+				executor.execute(this::deliver);
+			} catch (RejectedExecutionException e) {
+				scheduled.set(false);
+				throw e;
+			}
+		}
+	}
+	
+	private void deliver() {
+		try {
+			BreadcrumbEvent<S, V> evt = null;
+			while((evt = queue.poll()) != null)
+				delegate.breadCrumbEvent(evt);
+		} finally {
+			scheduled.set(false);
+			// events may have been queued after the last poll
+			if(!queue.isEmpty())
+				schedule();
+		}
+	}
+
+}
@@ -27,7 +27,7 @@ import javax.swing.UIManager;
 
 /**
  * A {@link JBreadcrumb} is a specialized list view using
- * a {@link Breadcrumb} for the data model.
+ * a {@link BreadcrumbModel} for the data model.
  * 
  * @param <S>  the type of state in the breadcrumb
  * @param <V>  the type of value in the breadcrumb
@@ -39,8 +39,8 @@ public class JBreadcrumb<S, V> extends JComponent implements Scrollable {
 	/** UI class identifier */
 	public final static String uiClassId = "BreadcrumbUI";
 
-	/** The {@link Breadcrumb} this component is viewing */
-	private Breadcrumb<S, V> breadcrumb;
+	/** The {@link BreadcrumbModel} this component is viewing */
+	private BreadcrumbModel<S, V> breadcrumb;
 	
 	/** Background color for non-current states */
 	private Color stateBackground;
@@ -57,12 +57,19 @@ public class JBreadcrumb<S, V> extends JComponent implements Scrollable {
 	/** State renderer */
 	private BreadcrumbStateRenderer<? super S, ? super V> stateRenderer;
 
+	/**
+	 * Creates a new component viewing an empty {@link DefaultBreadcrumbModel}.
+	 */
+	public JBreadcrumb() {
+		this(new DefaultBreadcrumbModel<>());
+	}
+
 	/**
 	 * Default constructor
 	 * 
 	 * @param breadcrumb  the breadcrumb to display
 	 */
-	public JBreadcrumb(Breadcrumb<S, V> breadcrumb) {
+	public JBreadcrumb(BreadcrumbModel<S, V> breadcrumb) {
 		super();
 		setLayout(null);
 		setBreadcrumb(breadcrumb);
@@ -184,7 +191,7 @@ public class JBreadcrumb<S, V> extends JComponent implements Scrollable {
 	 * 
 	 * @return  the breadcrumb, or <code>null</code> if no breadcrumb being viewed
 	 */
-	public Breadcrumb<S, V> getBreadcrumb() {
+	public BreadcrumbModel<S, V> getBreadcrumb() {
 		return breadcrumb;
 	}
 	
@@ -214,8 +221,8 @@ public class JBreadcrumb<S, V> extends JComponent implements Scrollable {
 	 * 
 	 * @param breadcrumb  the breadcrumb
 	 */
-	public void setBreadcrumb(Breadcrumb<S, V> breadcrumb) {
-		final Breadcrumb<S, V> oldBreadcrumb = this.breadcrumb;
+	public void setBreadcrumb(BreadcrumbModel<S, V> breadcrumb) {
+		final BreadcrumbModel<S, V> oldBreadcrumb = this.breadcrumb;
 		this.breadcrumb = breadcrumb;
 		
 		firePropertyChange("breadcrumb", oldBreadcrumb, breadcrumb);
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * {@link BreadcrumbModel} for <code>long</code> states, such as record
+ * identifiers.  States are stored in a <code>long</code> array and indexed
+ * by a primitive hash map, so the primitive methods, e.g.,
+ * {@link #addState(long, Object)} and {@link #gotoState(long)}, do not box
+ * states.  States are only boxed by the methods of
+ * {@link BreadcrumbModel} and when events are fired to listeners.
+ * 
+ * <p>This model is not synchronized and should only be modified on the
+ * event dispatch thread.  <code>null</code> states are not supported.</p>
+ * 
+ * @param <V>  the type of value associated with a state
+ */
+public class LongBreadcrumbModel<V> extends PrimitiveBreadcrumbModel<Long, V> {
+	
+	private static final long serialVersionUID = 3466306541838418934L;
+	
+	/** The states stack */
+	private long[] states = new long[DEFAULT_CAPACITY];
+	
+	/**
+	 * Creates a new empty breadcrumb model.
+	 */
+	public LongBreadcrumbModel() {
+		super();
+	}
+	
+	//
+	// Primitive operations
+	//
+	
+	/**
+	 * Does the breadcrumb contain the given state.
+	 * 
+	 * @param state  the state
+	 * 
+	 * @return <code>true</code> if the state is in the breadcrumb
+	 */
+	public boolean containsState(long state) {
+		return indexOfKey(state) >= 0;
+	}
+	
+	/**
+	 * Get index of the first occurrence of the given state.
+	 * 
+	 * @param state  the state
+	 * 
+	 * @return the index of the state, -1 if not found
+	 */
+	public int getIndexOfState(long state) {
+		return indexOfKey(state);
+	}
+	
+	/**
+	 * Get the current state.
+	 * 
+	 * @return the current state
+	 * 
+	 * @throws NoSuchElementException  if the breadcrumb is empty
+	 */
+	public long getCurrentLongState() {
+		if(size() == 0)
+			throw new NoSuchElementException();
+		return states[size()-1];
+	}
+	
+	/**
+	 * Get the state at the given index.
+	 * 
+	 * @param index  the index of the state
+	 * 
+	 * @return the state at the given index
+	 * 
+	 * @throws IndexOutOfBoundsException  if the index is out of range (i.e.,
+	 *                                    {@code index < 0 || index >= size()})
+	 */
+	public long peekLongState(int index) {
+		Objects.checkIndex(index, size());
+		return states[index];
+	}
+	
+	/**
+	 * Get the states of the breadcrumb.
+	 * 
+	 * @return a copy of the states
+	 */
+	public long[] toLongArray() {
+		return Arrays.copyOf(states, size());
+	}
+	
+	/**
+	 * Get value of the first occurrence of the given state.
+	 * 
+	 * @param state  the state
+	 * 
+	 * @return the value, <code>null</code> if the state is not found
+	 */
+	public V getValue(long state) {
+		return getValueOfKey(state);
+	}
+	
+	/**
+	 * Set value of the first occurrence of the given state.
+	 * 
+	 * @param state  the state
+	 * @param value  the value
+	 */
+	public void setValue(long state, V value) {
+		setValueOfKey(state, value);
+	}
+	
+	/**
+	 * Go to the last occurrence of the given state, removing all states
+	 * after it.
+	 * 
+	 * @param state  the state
+	 */
+	public void gotoState(long state) {
+		gotoKey(state);
+	}
+	
+	/**
+	 * Add a state with no value.
+	 * 
+	 * @param state  the state
+	 */
+	public void addState(long state) {
+		addKey(state, null);
+	}
+	
+	/**
+	 * Add a state.
+	 * 
+	 * @param state  the state
+	 * @param value  the value
+	 */
+	public void addState(long state, V value) {
+		addKey(state, value);
+	}
+	
+	//
+	// State storage
+	//
+	
+	@Override
+	protected long keyAt(int index) {
+		return states[index];
+	}
+	
+	@Override
+	protected Long stateAt(int index) {
+		return states[index];
+	}
+	
+	@Override
+	protected void storeState(int index, long key) {
+		states[index] = key;
+	}
+	
+	@Override
+	protected void growStates(int capacity) {
+		states = Arrays.copyOf(states, capacity);
+	}
+	
+	@Override
+	protected long toKey(Long state) {
+		return state.longValue();
+	}
+
+}
@@ -0,0 +1,543 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import ca.phon.ui.jbreadcrumb.Breadcrumb.EntrySet;
+
+/**
+ * Base implementation of {@link BreadcrumbModel} for primitive states.
+ * Subclasses store states in a primitive array, this class stores the
+ * values and indexes states by a primitive hash map of
+ * <code>long</code> keys, so the key methods, e.g.,
+ * {@link #addKey(long, Object)} and {@link #gotoKey(long)}, do not box
+ * states.  States are only boxed by the methods of
+ * {@link BreadcrumbModel} and when events are fired to listeners.
+ * 
+ * <p>This model is not synchronized and should only be modified on the
+ * event dispatch thread.  <code>null</code> states are not supported.</p>
+ * 
+ * @param <S>  the boxed type of state
+ * @param <V>  the type of value associated with a state
+ */
+public abstract class PrimitiveBreadcrumbModel<S, V> extends AbstractBreadcrumbModel<S, V> {
+	
+	private static final long serialVersionUID = 6172484117458307339L;
+	
+	/** Initial capacity of the states and values stacks */
+	protected final static int DEFAULT_CAPACITY = 16;
+	
+	/** The values stack */
+	private Object[] values = new Object[DEFAULT_CAPACITY];
+	
+	/** Number of states */
+	private int count = 0;
+	
+	/** Index of the first occurrence and number of occurrences of each state */
+	private final IndexMap indexMap = new IndexMap();
+	
+	/** Read-only view of the states stack */
+	private transient List<S> statesView;
+	
+	/** Read-only view of the values stack */
+	private transient List<V> valuesView;
+	
+	/**
+	 * Creates a new empty breadcrumb model.
+	 */
+	protected PrimitiveBreadcrumbModel() {
+		super();
+	}
+	
+	//
+	// State storage
+	//
+	
+	/**
+	 * Gets the key of the state at the given index.
+	 * 
+	 * @param index  the index, less than {@link #size()}
+	 * 
+	 * @return the state as a key
+	 */
+	protected abstract long keyAt(int index);
+	
+	/**
+	 * Gets the boxed state at the given index.
+	 * 
+	 * @param index  the index, less than {@link #size()}
+	 * 
+	 * @return the state
+	 */
+	protected abstract S stateAt(int index);
+	
+	/**
+	 * Stores a state in the states stack.
+	 * 
+	 * @param index  the index, less than the capacity of the stack
+	 * @param key  the state as a key
+	 */
+	protected abstract void storeState(int index, long key);
+	
+	/**
+	 * Grows the states stack.
+	 * 
+	 * @param capacity  the new capacity
+	 */
+	protected abstract void growStates(int capacity);
+	
+	/**
+	 * Converts a boxed state to a key.
+	 * 
+	 * @param state  the state
+	 * 
+	 * @return the state as a key
+	 * 
+	 * @throws NullPointerException  if state is <code>null</code>
+	 */
+	protected abstract long toKey(S state);
+	
+	//
+	// Key operations
+	//
+	
+	/**
+	 * Get index of the first occurrence of the given state.
+	 * 
+	 * @param key  the state as a key
+	 * 
+	 * @return the index of the state, -1 if not found
+	 */
+	protected int indexOfKey(long key) {
+		return indexMap.getFirst(key);
+	}
+	
+	/**
+	 * Get value of the first occurrence of the given state.
+	 * 
+	 * @param key  the state as a key
+	 * 
+	 * @return the value, <code>null</code> if the state is not found
+	 */
+	protected V getValueOfKey(long key) {
+		final int index = indexMap.getFirst(key);
+		return (index >= 0 ? valueAt(index) : null);
+	}
+	
+	/**
+	 * Set value of the first occurrence of the given state.
+	 * 
+	 * @param key  the state as a key
+	 * @param value  the value
+	 */
+	protected void setValueOfKey(long key, V value) {
+		final int index = indexMap.getFirst(key);
+		if(index >= 0)
+			setValueAt(index, value);
+	}
+	
+	/**
+	 * Go to the last occurrence of the given state, removing all states
+	 * after it.
+	 * 
+	 * @param key  the state as a key
+	 */
+	protected void gotoKey(long key) {
+		if(indexMap.getFirst(key) < 0) return;
+		int index = count - 1;
+		while(keyAt(index) != key) --index;
+		gotoIndex(index);
+	}
+	
+	/**
+	 * Add a state.
+	 * 
+	 * @param key  the state as a key
+	 * @param value  the value
+	 */
+	protected void addKey(long key, V value) {
+		final boolean fire = isUpdating() || hasBreadcrumbListeners();
+		final S oldState = (fire && count > 0 ? stateAt(count-1) : null);
+		final V oldValue = (fire && count > 0 ? valueAt(count-1) : null);
+		final int index = push(key, value);
+		if(fire) {
+			final S state = stateAt(index);
+			fireStateAdded(index, state, value);
+			fireStateChanged(index, oldState, oldValue, state);
+		}
+	}
+	
+	//
+	// BreadcrumbModel
+	//
+	
+	@Override
+	public int size() {
+		return count;
+	}
+	
+	@Override
+	public boolean containsState(S state) {
+		return state != null && indexMap.getFirst(toKey(state)) >= 0;
+	}
+	
+	@Override
+	public S getCurrentState() {
+		return (count == 0 ? null : stateAt(count-1));
+	}
+	
+	@Override
+	public V getCurrentValue() {
+		return (count == 0 ? null : valueAt(count-1));
+	}
+	
+	@Override
+	public int getIndexOfState(S state) {
+		return (state != null ? indexMap.getFirst(toKey(state)) : -1);
+	}
+	
+	@Override
+	public S peekState(int index) {
+		Objects.checkIndex(index, count);
+		return stateAt(index);
+	}
+	
+	@Override
+	public V getValue(S state) {
+		return (state != null ? getValueOfKey(toKey(state)) : null);
+	}
+	
+	@Override
+	public void setValue(S state, V value) {
+		if(state != null)
+			setValueOfKey(toKey(state), value);
+	}
+	
+	@Override
+	public V getValueAt(int index) {
+		Objects.checkIndex(index, count);
+		return valueAt(index);
+	}
+	
+	@Override
+	public void setValueAt(int index, V value) {
+		Objects.checkIndex(index, count);
+		final V oldValue = valueAt(index);
+		values[index] = value;
+		if(isUpdating() || hasBreadcrumbListeners())
+			fireValueChanged(index, index, stateAt(index), oldValue, value);
+	}
+	
+	@Override
+	public List<S> getStates() {
+		if(statesView == null)
+			statesView = new StatesView();
+		return statesView;
+	}
+	
+	@Override
+	public Collection<V> getValues() {
+		if(valuesView == null)
+			valuesView = new ValuesView();
+		return valuesView;
+	}
+	
+	@Override
+	public void clear() {
+		if(count > 0) {
+			final S oldState = getCurrentState();
+			final V oldValue = getCurrentValue();
+			final int lastIndex = count - 1;
+			truncate(0);
+			fireCleared(lastIndex, oldState, oldValue);
+		}
+	}
+	
+	@Override
+	public EntrySet<S, V> popState() {
+		EntrySet<S, V> retVal = null;
+		if(count > 0) {
+			final S state = stateAt(count-1);
+			final V value = valueAt(count-1);
+			truncate(count-1);
+			
+			if(isUpdating() || hasBreadcrumbListeners()) {
+				fireStatesRemoved(count, count, state, value);
+				fireStateChanged(count-1, state, value, getCurrentState());
+			}
+			
+			retVal = new EntrySet<>(state, value);
+		}
+		return retVal;
+	}
+	
+	@Override
+	public void gotoState(S state) {
+		if(state != null)
+			gotoKey(toKey(state));
+	}
+	
+	@Override
+	public void gotoIndex(int index) {
+		Objects.checkIndex(index, count);
+		final boolean fire = isUpdating() || hasBreadcrumbListeners();
+		final S oldState = (fire ? getCurrentState() : null);
+		final V oldValue = (fire ? getCurrentValue() : null);
+		final int lastIndex = count - 1;
+		if(index < lastIndex) {
+			truncate(index + 1);
+			if(fire)
+				fireStatesRemoved(index + 1, lastIndex, oldState, oldValue);
+		}
+		
+		if(fire)
+			fireStateChanged(index, oldState, oldValue, getCurrentState());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>States and values which already match the start of the given
+	 * list are kept, only the remaining states are removed and added.
+	 * The breadcrumb is updated as a single batch update, reporting only
+	 * the changed positions.</p>
+	 * 
+	 * @throws NullPointerException  if any state is <code>null</code>, the
+	 *         breadcrumb is not modified
+	 */
+	@Override
+	public void set(List<EntrySet<S, V>> states) {
+		// primitive states cannot be null, check before modifying the breadcrumb
+		for(EntrySet<S, V> entry : states)
+			Objects.requireNonNull(entry.getState());
+		
+		int common = 0;
+		for(EntrySet<S, V> entry : states) {
+			if(common == count
+					|| keyAt(common) != toKey(entry.getState())
+					|| !Objects.equals(values[common], entry.getValue()))
+				break;
+			++common;
+		}
+		if(common == count && common == states.size()) return;
+		
+		beginUpdate();
+		try {
+			final S oldState = getCurrentState();
+			if(common < count) {
+				final int lastIndex = count - 1;
+				truncate(common);
+				fireStatesRemoved(common, lastIndex, oldState, null);
+			}
+			for(EntrySet<S, V> state : states.subList(common, states.size())) {
+				final int index = push(toKey(state.getState()), state.getValue());
+				fireStateAdded(index, state.getState(), state.getValue());
+			}
+			
+			fireStateChanged(count-1, oldState, null, getCurrentState());
+		} finally {
+			endUpdate();
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws NullPointerException  if state is <code>null</code>
+	 */
+	@Override
+	public void addState(S state, V value) {
+		addKey(toKey(state), value);
+	}
+	
+	//
+	// Storage
+	//
+	
+	@SuppressWarnings("unchecked")
+	private V valueAt(int index) {
+		return (V)values[index];
+	}
+	
+	private int push(long key, V value) {
+		if(count == values.length) {
+			values = Arrays.copyOf(values, count * 2);
+			growStates(count * 2);
+		}
+		final int index = count++;
+		storeState(index, key);
+		values[index] = value;
+		indexMap.add(key, index);
+		return index;
+	}
+	
+	private void truncate(int fromIndex) {
+		if(fromIndex == 0) {
+			indexMap.clear();
+		} else {
+			for(int i = fromIndex; i < count; i++)
+				indexMap.remove(keyAt(i));
+		}
+		Arrays.fill(values, fromIndex, count, null);
+		count = fromIndex;
+	}
+	
+	/**
+	 * Open-addressing hash map from state to the index of its first
+	 * occurrence and its number of occurrences.  Uses linear probing with
+	 * backward-shift deletion.
+	 */
+	private final static class IndexMap implements Serializable {
+		
+		private static final long serialVersionUID = -5323062985338914178L;
+		
+		private long[] keys = new long[DEFAULT_CAPACITY];
+		
+		/** Index of the first occurrence */
+		private int[] firsts = new int[DEFAULT_CAPACITY];
+		
+		/** Number of occurrences, 0 for an empty slot */
+		private int[] counts = new int[DEFAULT_CAPACITY];
+		
+		private int size = 0;
+		
+		private int slot(long key) {
+			final long h = key * 0x9e3779b97f4a7c15L;
+			return (int)(h ^ (h >>> 32)) & (keys.length - 1);
+		}
+		
+		private int find(long key) {
+			final int mask = keys.length - 1;
+			for(int i = slot(key); counts[i] != 0; i = (i + 1) & mask) {
+				if(keys[i] == key) return i;
+			}
+			return -1;
+		}
+		
+		int getFirst(long key) {
+			final int i = find(key);
+			return (i >= 0 ? firsts[i] : -1);
+		}
+		
+		void add(long key, int index) {
+			final int mask = keys.length - 1;
+			int i = slot(key);
+			for(; counts[i] != 0; i = (i + 1) & mask) {
+				if(keys[i] == key) {
+					++counts[i];
+					return;
+				}
+			}
+			keys[i] = key;
+			firsts[i] = index;
+			counts[i] = 1;
+			if(++size * 2 > keys.length)
+				rehash(keys.length * 2);
+		}
+		
+		/**
+		 * Removes one occurrence of a key.  Occurrences are removed from
+		 * the top of the breadcrumb, so the first occurrence is removed last.
+		 */
+		void remove(long key) {
+			int i = find(key);
+			if(i < 0 || --counts[i] > 0) return;
+			
+			// shift back following entries which probed past the removed slot
+			final int mask = keys.length - 1;
+			int j = i;
+			while(true) {
+				j = (j + 1) & mask;
+				if(counts[j] == 0) break;
+				final int k = slot(keys[j]);
+				if((j > i && (k <= i || k > j)) || (j < i && (k <= i && k > j))) {
+					keys[i] = keys[j];
+					firsts[i] = firsts[j];
+					counts[i] = counts[j];
+					i = j;
+				}
+			}
+			counts[i] = 0;
+			--size;
+		}
+		
+		void clear() {
+			Arrays.fill(counts, 0);
+			size = 0;
+		}
+		
+		private void rehash(int capacity) {
+			final long[] oldKeys = keys;
+			final int[] oldFirsts = firsts;
+			final int[] oldCounts = counts;
+			keys = new long[capacity];
+			firsts = new int[capacity];
+			counts = new int[capacity];
+			final int mask = capacity - 1;
+			for(int i = 0; i < oldKeys.length; i++) {
+				if(oldCounts[i] == 0) continue;
+				int j = slot(oldKeys[i]);
+				while(counts[j] != 0) j = (j + 1) & mask;
+				keys[j] = oldKeys[i];
+				firsts[j] = oldFirsts[i];
+				counts[j] = oldCounts[i];
+			}
+		}
+	
+	}
+	
+	/**
+	 * Read-only list view of the states stack.
+	 */
+	private final class StatesView extends AbstractList<S> implements RandomAccess {
+		
+		@Override
+		public S get(int index) {
+			return peekState(index);
+		}
+		
+		@Override
+		public int size() {
+			return count;
+		}
+	
+	}
+	
+	/**
+	 * Read-only list view of the values stack.
+	 */
+	private final class ValuesView extends AbstractList<V> implements RandomAccess {
+		
+		@Override
+		public V get(int index) {
+			return getValueAt(index);
+		}
+		
+		@Override
+		public int size() {
+			return count;
+		}
+	
+	}
+
+}
@@ -0,0 +1,587 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import ca.phon.ui.jbreadcrumb.Breadcrumb.EntrySet;
+
+/**
+ * {@link BreadcrumbModel} backed by a navigation tree.  The breadcrumb is
+ * the path from a top-level node to the current node.  Removing states
+ * with {@link #popState()} or {@link #gotoState(Object)} does not discard
+ * them: they remain in the tree as a branch which may be revisited with
+ * {@link #switchTo(Node)}, or by adding the same state again, without
+ * recomputing values.
+ * 
+ * <p>Branches share the nodes of their common prefix.  Switching to
+ * another branch only removes and adds the states below the point where
+ * the branches diverge.  Each node has at most one child for a given
+ * state.</p>
+ * 
+ * <p>This model is not synchronized and should only be modified on the
+ * event dispatch thread.  Branches are kept until removed with
+ * {@link #removeBranch(Node)} or {@link #clearTree()}.</p>
+ * 
+ * @param <S>  the type of state
+ * @param <V>  the type of value associated with a state
+ */
+public class TreeBreadcrumbModel<S, V> extends AbstractBreadcrumbModel<S, V> {
+	
+	private static final long serialVersionUID = 6283375540367725815L;
+	
+	/**
+	 * Node in the navigation tree.
+	 * 
+	 * @param <S>  the type of state
+	 * @param <V>  the type of value
+	 */
+	public static final class Node<S, V> implements Serializable {
+		
+		private static final long serialVersionUID = -4522409263710935337L;
+		
+		private final S state;
+		
+		private V value;
+		
+		private final Node<S, V> parent;
+		
+		private final int depth;
+		
+		/** Child nodes by state, allocated when the first child is added */
+		private LinkedHashMap<S, Node<S, V>> children;
+		
+		Node(S state, V value, Node<S, V> parent) {
+			this.state = state;
+			this.value = value;
+			this.parent = parent;
+			this.depth = (parent != null ? parent.depth + 1 : 0);
+		}
+		
+		/**
+		 * Gets the state of this node.
+		 * 
+		 * @return the state
+		 */
+		public S getState() {
+			return state;
+		}
+		
+		/**
+		 * Gets the value of this node.
+		 * 
+		 * @return the value
+		 */
+		public V getValue() {
+			return value;
+		}
+		
+		/**
+		 * Gets the parent of this node.
+		 * 
+		 * @return the parent, <code>null</code> for a top-level node
+		 */
+		public Node<S, V> getParent() {
+			return parent;
+		}
+		
+		/**
+		 * Gets the depth of this node, which is the index of its state
+		 * when the node is on the current path.
+		 * 
+		 * @return the depth, 0 for a top-level node
+		 */
+		public int getDepth() {
+			return depth;
+		}
+		
+		/**
+		 * Gets the child nodes of this node in the order they were added.
+		 * 
+		 * @return the children
+		 */
+		public Collection<Node<S, V>> getChildren() {
+			return (children != null ? Collections.unmodifiableCollection(children.values()) : Collections.emptyList());
+		}
+		
+		/**
+		 * Gets the child node for the given state.
+		 * 
+		 * @param state  the state
+		 * 
+		 * @return the child node, or <code>null</code> if not found
+		 */
+		public Node<S, V> getChild(S state) {
+			return (children != null ? children.get(state) : null);
+		}
+		
+		@Override
+		public String toString() {
+			return String.valueOf(state);
+		}
+	
+	}
+	
+	/** Top-level nodes by state */
+	private final LinkedHashMap<S, Node<S, V>> roots = new LinkedHashMap<>();
+	
+	/** Nodes of the current path */
+	private final ArrayList<Node<S, V>> path = new ArrayList<>();
+	
+	/** Index of the first occurrence and number of occurrences of each state on the path */
+	private final HashMap<S, IndexEntry> indexMap = new HashMap<>();
+	
+	/** Read-only view of the states stack */
+	private transient List<S> statesView;
+	
+	/** Read-only view of the values stack */
+	private transient List<V> valuesView;
+	
+	/**
+	 * Creates a new empty tree breadcrumb model.
+	 */
+	public TreeBreadcrumbModel() {
+		super();
+	}
+	
+	@Override
+	public int size() {
+		return path.size();
+	}
+	
+	@Override
+	public boolean containsState(S state) {
+		return indexMap.containsKey(state);
+	}
+	
+	@Override
+	public S getCurrentState() {
+		return (path.isEmpty() ? null : path.get(path.size()-1).state);
+	}
+	
+	@Override
+	public V getCurrentValue() {
+		return (path.isEmpty() ? null : path.get(path.size()-1).value);
+	}
+	
+	@Override
+	public int getIndexOfState(S state) {
+		final IndexEntry entry = indexMap.get(state);
+		return (entry != null ? entry.first : -1);
+	}
+	
+	@Override
+	public S peekState(int index) {
+		return path.get(index).state;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>Returns the value of the first occurrence of the state.</p>
+	 */
+	@Override
+	public V getValue(S state) {
+		final int index = getIndexOfState(state);
+		return (index >= 0 ? path.get(index).value : null);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>Sets the value of the first occurrence of the state.</p>
+	 */
+	@Override
+	public void setValue(S state, V value) {
+		final int index = getIndexOfState(state);
+		if(index >= 0)
+			setValueAt(index, value);
+	}
+	
+	@Override
+	public V getValueAt(int index) {
+		return path.get(index).value;
+	}
+	
+	@Override
+	public void setValueAt(int index, V value) {
+		final Node<S, V> node = path.get(index);
+		final V oldValue = node.value;
+		node.value = value;
+		fireValueChanged(index, index, node.state, oldValue, value);
+	}
+	
+	@Override
+	public List<S> getStates() {
+		if(statesView == null)
+			statesView = new PathView<>(path, false);
+		return statesView;
+	}
+	
+	@Override
+	public Collection<V> getValues() {
+		if(valuesView == null)
+			valuesView = new PathView<>(path, true);
+		return valuesView;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>The navigation tree is kept, see {@link #clearTree()}.</p>
+	 */
+	@Override
+	public void clear() {
+		if(!path.isEmpty()) {
+			final S oldState = getCurrentState();
+			final V oldValue = getCurrentValue();
+			final int lastIndex = path.size() - 1;
+			truncate(0);
+			fireCleared(lastIndex, oldState, oldValue);
+		}
+	}
+	
+	@Override
+	public EntrySet<S, V> popState() {
+		EntrySet<S, V> retVal = null;
+		if(!path.isEmpty()) {
+			final Node<S, V> node = path.get(path.size()-1);
+			truncate(path.size()-1);
+			
+			fireStatesRemoved(path.size(), path.size(), node.state, node.value);
+			fireStateChanged(path.size()-1, node.state, node.value, getCurrentState());
+			
+			retVal = new EntrySet<>(node.state, node.value);
+		}
+		return retVal;
+	}
+	
+	@Override
+	public void gotoState(S state) {
+		if(!containsState(state)) return;
+		int index = path.size() - 1;
+		while(index >= 0 && !Objects.equals(path.get(index).state, state)) --index;
+		gotoIndex(index);
+	}
+	
+	@Override
+	public void gotoIndex(int index) {
+		final S oldState = getCurrentState();
+		final V oldValue = getCurrentValue();
+		final S state = path.get(index).state;
+		final int lastIndex = path.size() - 1;
+		if(index < lastIndex) {
+			truncate(index + 1);
+			fireStatesRemoved(index + 1, lastIndex, oldState, oldValue);
+		}
+		
+		fireStateChanged(index, oldState, oldValue, state);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>States which already match the current path are kept, the
+	 * remaining states are added as a branch of the tree.  The breadcrumb
+	 * is replaced as a single batch update.</p>
+	 */
+	@Override
+	public void set(List<EntrySet<S, V>> states) {
+		int common = 0;
+		while(common < path.size() && common < states.size()
+				&& Objects.equals(path.get(common).state, states.get(common).getState())
+				&& Objects.equals(path.get(common).value, states.get(common).getValue()))
+			++common;
+		if(common == path.size() && common == states.size()) return;
+		
+		beginUpdate();
+		try {
+			final S oldState = getCurrentState();
+			if(common < path.size()) {
+				final int lastIndex = path.size() - 1;
+				final V oldValue = getCurrentValue();
+				truncate(common);
+				fireStatesRemoved(common, lastIndex, oldState, oldValue);
+			}
+			for(EntrySet<S, V> entry : states.subList(common, states.size())) {
+				final Node<S, V> node = child(getCurrentNode(), entry.getState(), entry.getValue(), true);
+				push(node);
+				fireStateAdded(path.size()-1, node.state, node.value);
+			}
+			fireStateChanged(path.size()-1, oldState, null, getCurrentState());
+		} finally {
+			endUpdate();
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>If the current node already has a child for the state, the child
+	 * is reused with its existing value.</p>
+	 */
+	@Override
+	public void addState(S state) {
+		final Node<S, V> node = child(getCurrentNode(), state, null, false);
+		addNode(node);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>If the current node already has a child for the state, the child
+	 * is reused and its value replaced.</p>
+	 */
+	@Override
+	public void addState(S state, V value) {
+		final Node<S, V> node = child(getCurrentNode(), state, value, true);
+		addNode(node);
+	}
+	
+	private void addNode(Node<S, V> node) {
+		final S oldState = getCurrentState();
+		final V oldValue = getCurrentValue();
+		push(node);
+		final int index = path.size() - 1;
+		fireStateAdded(index, node.state, node.value);
+		fireStateChanged(index, oldState, oldValue, node.state);
+	}
+	
+	//
+	// Tree
+	//
+	
+	/**
+	 * Gets the node of the current state.
+	 * 
+	 * @return the current node, <code>null</code> if the breadcrumb is empty
+	 */
+	public Node<S, V> getCurrentNode() {
+		return (path.isEmpty() ? null : path.get(path.size()-1));
+	}
+	
+	/**
+	 * Gets the top-level nodes of the navigation tree.
+	 * 
+	 * @return the top-level nodes in the order they were added
+	 */
+	public Collection<Node<S, V>> getRoots() {
+		return Collections.unmodifiableCollection(roots.values());
+	}
+	
+	/**
+	 * Makes the given node the current node.  States shared by the current
+	 * path and the path to the node are kept; only the states below the
+	 * point of divergence are removed and added.  The breadcrumb is updated
+	 * as a single batch update.
+	 * 
+	 * @param node  a node of this model's tree
+	 * 
+	 * @throws IllegalArgumentException  if the node is not in this model's tree
+	 */
+	public void switchTo(Node<S, V> node) {
+		Objects.requireNonNull(node);
+		
+		// walk up to the deepest node on the current path
+		final ArrayList<Node<S, V>> added = new ArrayList<>();
+		Node<S, V> n = node;
+		while(n != null && !isOnPath(n)) {
+			if(children(n.parent).get(n.state) != n)
+				throw new IllegalArgumentException("Node is not in this tree");
+			added.add(n);
+			n = n.parent;
+		}
+		final int common = (n != null ? n.depth + 1 : 0);
+		if(added.isEmpty() && common == path.size()) return;
+		
+		beginUpdate();
+		try {
+			final S oldState = getCurrentState();
+			if(common < path.size()) {
+				final int lastIndex = path.size() - 1;
+				final V oldValue = getCurrentValue();
+				truncate(common);
+				fireStatesRemoved(common, lastIndex, oldState, oldValue);
+			}
+			for(int i = added.size() - 1; i >= 0; i--) {
+				final Node<S, V> addedNode = added.get(i);
+				push(addedNode);
+				fireStateAdded(path.size()-1, addedNode.state, addedNode.value);
+			}
+			fireStateChanged(path.size()-1, oldState, null, getCurrentState());
+		} finally {
+			endUpdate();
+		}
+	}
+	
+	/**
+	 * Removes a node and its descendants from the tree.  If the node is on
+	 * the current path, the path is first truncated to the node's parent.
+	 * 
+	 * @param node  a node of this model's tree
+	 */
+	public void removeBranch(Node<S, V> node) {
+		if(isOnPath(node)) {
+			if(node.depth > 0)
+				gotoIndex(node.depth - 1);
+			else
+				clear();
+		}
+		final LinkedHashMap<S, Node<S, V>> siblings = children(node.parent);
+		if(siblings.get(node.state) == node)
+			siblings.remove(node.state);
+	}
+	
+	/**
+	 * Removes all states and the navigation tree.
+	 */
+	public void clearTree() {
+		clear();
+		roots.clear();
+	}
+	
+	private boolean isOnPath(Node<S, V> node) {
+		return node.depth < path.size() && path.get(node.depth) == node;
+	}
+	
+	/**
+	 * Child nodes of the given node, or the top-level nodes if the node
+	 * is <code>null</code>.
+	 * 
+	 * @param node  the node
+	 * 
+	 * @return the child map, may be empty
+	 */
+	private LinkedHashMap<S, Node<S, V>> children(Node<S, V> node) {
+		if(node == null) return roots;
+		if(node.children == null)
+			node.children = new LinkedHashMap<>();
+		return node.children;
+	}
+	
+	/**
+	 * Gets or creates the child of a node for the given state.
+	 * 
+	 * @param parent  the parent node, <code>null</code> for a top-level node
+	 * @param state  the state
+	 * @param value  the value
+	 * @param replaceValue  whether to replace the value of an existing child
+	 * 
+	 * @return the child node
+	 */
+	private Node<S, V> child(Node<S, V> parent, S state, V value, boolean replaceValue) {
+		final LinkedHashMap<S, Node<S, V>> children = children(parent);
+		Node<S, V> retVal = children.get(state);
+		if(retVal == null) {
+			retVal = new Node<>(state, value, parent);
+			children.put(state, retVal);
+		} else if(replaceValue) {
+			retVal.value = value;
+		}
+		return retVal;
+	}
+	
+	//
+	// Path
+	//
+	
+	private void push(Node<S, V> node) {
+		final int index = path.size();
+		path.add(node);
+		final IndexEntry entry = indexMap.get(node.state);
+		if(entry == null)
+			indexMap.put(node.state, new IndexEntry(index));
+		else
+			++entry.count;
+	}
+	
+	/**
+	 * Removes all nodes at or above the given index from the current path.
+	 * The nodes remain in the tree.
+	 * 
+	 * @param fromIndex  the index of the first node to remove
+	 */
+	private void truncate(int fromIndex) {
+		if(fromIndex == 0) {
+			indexMap.clear();
+		} else {
+			for(int i = fromIndex; i < path.size(); i++) {
+				final S state = path.get(i).state;
+				final IndexEntry entry = indexMap.get(state);
+				if(--entry.count == 0)
+					indexMap.remove(state);
+			}
+		}
+		path.subList(fromIndex, path.size()).clear();
+	}
+	
+	/**
+	 * Index of the first occurrence and number of occurrences of a state.
+	 */
+	private final static class IndexEntry implements Serializable {
+		
+		private static final long serialVersionUID = -7416210707969530164L;
+		
+		/** Index of the first occurrence */
+		final int first;
+		
+		/** Number of occurrences */
+		int count = 1;
+		
+		IndexEntry(int first) {
+			this.first = first;
+		}
+	
+	}
+	
+	/**
+	 * Read-only list view of the states or values of the current path.
+	 */
+	private final static class PathView<S, V, T> extends AbstractList<T> implements RandomAccess {
+		
+		private final List<Node<S, V>> path;
+		
+		private final boolean values;
+		
+		PathView(List<Node<S, V>> path, boolean values) {
+			this.path = path;
+			this.values = values;
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public T get(int index) {
+			final Node<S, V> node = path.get(index);
+			return (T)(values ? node.value : node.state);
+		}
+		
+		@Override
+		public int size() {
+			return path.size();
+		}
+	
+	}
+
+}
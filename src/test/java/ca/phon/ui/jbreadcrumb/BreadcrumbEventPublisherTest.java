@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import ca.phon.ui.jbreadcrumb.BreadcrumbEventPublisher.OverflowPolicy;
+
+/**
+ * Tests of the overflow policies of {@link BreadcrumbEventPublisher}.
+ * Unless noted, events are delivered on the thread which requests or
+ * fires them, and the events received are compared with the events
+ * fired by the model.
+ */
+public class BreadcrumbEventPublisherTest {
+	
+	private final static long TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+	
+	@Test
+	public void testDropOldest() {
+		final DefaultBreadcrumbModel<Integer, String> model = new DefaultBreadcrumbModel<>();
+		final BreadcrumbEventPublisher<Integer, String> publisher = new BreadcrumbEventPublisher<>(model, Runnable::run);
+		final Recorder recorder = new Recorder();
+		publisher.subscribe(recorder, 3, OverflowPolicy.DROP_OLDEST);
+		final List<BreadcrumbEvent<Integer, String>> fired = record(model);
+		
+		addStates(model, 5);
+		assertTrue(recorder.events.isEmpty(), "nothing is delivered without demand");
+		
+		recorder.subscription.request(Long.MAX_VALUE);
+		assertEquals(fired.subList(fired.size() - 3, fired.size()), recorder.events);
+		
+		// with demand, nothing is dropped
+		recorder.events.clear();
+		fired.clear();
+		addStates(model, 5);
+		assertEquals(fired, recorder.events);
+	}
+	
+	@Test
+	public void testLatestOnly() {
+		final DefaultBreadcrumbModel<Integer, String> model = new DefaultBreadcrumbModel<>();
+		final BreadcrumbEventPublisher<Integer, String> publisher = new BreadcrumbEventPublisher<>(model, Runnable::run);
+		final Recorder recorder = new Recorder();
+		publisher.subscribe(recorder, 16, OverflowPolicy.LATEST_ONLY);
+		final List<BreadcrumbEvent<Integer, String>> fired = record(model);
+		
+		addStates(model, 5);
+		recorder.subscription.request(Long.MAX_VALUE);
+		assertEquals(1, recorder.events.size());
+		assertTrue(fired.get(fired.size() - 1) == recorder.events.get(0));
+	}
+	
+	@Test
+	public void testBlock() throws InterruptedException {
+		final DefaultBreadcrumbModel<Integer, String> model = new DefaultBreadcrumbModel<>();
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final BreadcrumbEventPublisher<Integer, String> publisher = new BreadcrumbEventPublisher<>(model, executor);
+			final Recorder recorder = new Recorder();
+			publisher.subscribe(recorder, 2, OverflowPolicy.BLOCK);
+			final List<BreadcrumbEvent<Integer, String>> fired = record(model);
+			
+			final Thread producer = new Thread(() -> addStates(model, 10));
+			producer.start();
+			waitFor(() -> producer.getState() == Thread.State.WAITING && fired.size() == 2);
+			Thread.sleep(50L);
+			assertTrue(producer.isAlive(), "producer blocks while the buffer is full");
+			assertEquals(2, fired.size());
+			
+			recorder.subscription.request(Long.MAX_VALUE);
+			producer.join(TIMEOUT);
+			assertFalse(producer.isAlive());
+			waitFor(() -> recorder.events.size() == fired.size());
+			assertEquals(fired, recorder.events);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void testCancelReleasesBlockedProducer() throws InterruptedException {
+		final DefaultBreadcrumbModel<Integer, String> model = new DefaultBreadcrumbModel<>();
+		final BreadcrumbEventPublisher<Integer, String> publisher = new BreadcrumbEventPublisher<>(model, Runnable::run);
+		final Recorder recorder = new Recorder();
+		publisher.subscribe(recorder, 1, OverflowPolicy.BLOCK);
+		
+		final Thread producer = new Thread(() -> addStates(model, 10));
+		producer.start();
+		waitFor(() -> producer.getState() == Thread.State.WAITING);
+		recorder.subscription.cancel();
+		producer.join(TIMEOUT);
+		assertFalse(producer.isAlive());
+		assertEquals(0, publisher.getNumberOfSubscribers());
+		assertTrue(recorder.events.isEmpty());
+	}
+	
+	@Test
+	public void testCloseCompletesAfterBufferedEvents() {
+		final DefaultBreadcrumbModel<Integer, String> model = new DefaultBreadcrumbModel<>();
+		final BreadcrumbEventPublisher<Integer, String> publisher = new BreadcrumbEventPublisher<>(model, Runnable::run);
+		final Recorder recorder = new Recorder();
+		publisher.subscribe(recorder);
+		final List<BreadcrumbEvent<Integer, String>> fired = record(model);
+		
+		addStates(model, 3);
+		publisher.close();
+		assertFalse(recorder.completed);
+		
+		recorder.subscription.request(Long.MAX_VALUE);
+		assertEquals(fired, recorder.events);
+		assertTrue(recorder.completed);
+		assertNull(recorder.error);
+		assertEquals(0, publisher.getNumberOfSubscribers());
+		
+		// events fired after closing are not published
+		final int received = recorder.events.size();
+		addStates(model, 1);
+		assertEquals(received, recorder.events.size());
+	}
+	
+	@Test
+	public void testNonPositiveRequest() {
+		final DefaultBreadcrumbModel<Integer, String> model = new DefaultBreadcrumbModel<>();
+		final BreadcrumbEventPublisher<Integer, String> publisher = new BreadcrumbEventPublisher<>(model, Runnable::run);
+		final Recorder recorder = new Recorder();
+		publisher.subscribe(recorder);
+		recorder.subscription.request(0L);
+		assertTrue(recorder.error instanceof IllegalArgumentException);
+		assertEquals(0, publisher.getNumberOfSubscribers());
+	}
+	
+	/**
+	 * Subscriber which records the events it receives.  No events are
+	 * requested when subscribed.
+	 */
+	private final static class Recorder implements Flow.Subscriber<BreadcrumbEvent<Integer, String>> {
+		
+		final List<BreadcrumbEvent<Integer, String>> events = new CopyOnWriteArrayList<>();
+		
+		volatile Flow.Subscription subscription;
+		
+		volatile boolean completed = false;
+		
+		volatile Throwable error;
+		
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+		}
+		
+		@Override
+		public void onNext(BreadcrumbEvent<Integer, String> item) {
+			events.add(item);
+		}
+		
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+		}
+		
+		@Override
+		public void onComplete() {
+			completed = true;
+		}
+	
+	}
+	
+	/**
+	 * Records the events fired by the model.  The listener is added after
+	 * the publisher's, so an event is recorded once it has been offered
+	 * to the subscribers.
+	 */
+	private static List<BreadcrumbEvent<Integer, String>> record(BreadcrumbModel<Integer, String> model) {
+		final List<BreadcrumbEvent<Integer, String>> retVal = new CopyOnWriteArrayList<>();
+		model.addBreadcrumbListener(retVal::add);
+		return retVal;
+	}
+	
+	private static void addStates(BreadcrumbModel<Integer, String> model, int count) {
+		final int start = model.size();
+		for(int i = start; i < start + count; i++)
+			model.addState(i, "v" + i);
+	}
+	
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		final long end = System.currentTimeMillis() + TIMEOUT;
+		while(!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < end, "Timed out");
+			Thread.sleep(10L);
+		}
+	}
+
+}
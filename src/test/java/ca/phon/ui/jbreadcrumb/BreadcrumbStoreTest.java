@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import ca.phon.ui.jbreadcrumb.BreadcrumbEvent.BreadcrumbEventType;
+
+/**
+ * Round-trip tests of {@link BreadcrumbStore}.  Each test uses a new
+ * temporary directory.
+ */
+public class BreadcrumbStoreTest {
+	
+	@Test
+	public void testRoundTrip() throws IOException {
+		final Path dir = Files.createTempDirectory("breadcrumb");
+		try {
+			final DefaultBreadcrumbModel<String, Integer> first = new DefaultBreadcrumbModel<>();
+			first.addState("a", 1);
+			first.addState("b");
+			first.addState("c", 3);
+			final DefaultBreadcrumbModel<String, Integer> second = new DefaultBreadcrumbModel<>();
+			second.addState("x", Integer.MAX_VALUE);
+			final Map<String, BreadcrumbModel<String, Integer>> trails = new LinkedHashMap<>();
+			trails.put("first", first);
+			trails.put("empty", new DefaultBreadcrumbModel<>());
+			trails.put("second", second);
+			
+			final Path file = dir.resolve("trails.bin");
+			new BreadcrumbStore<>(file, BreadcrumbCodec.STRING, BreadcrumbCodec.INTEGER).save(trails);
+			
+			final BreadcrumbStore<String, Integer> store = new BreadcrumbStore<>(file, BreadcrumbCodec.STRING, BreadcrumbCodec.INTEGER);
+			assertEquals(Arrays.asList("first", "empty", "second"), new ArrayList<>(store.getTrailNames()));
+			assertEquals(3, store.getTrailSize("first"));
+			assertEquals(0, store.getTrailSize("empty"));
+			assertEquals(-1, store.getTrailSize("missing"));
+			
+			final DefaultBreadcrumbModel<String, Integer> restored = store.restore("first");
+			assertEquals(Arrays.asList("a", "b", "c"), restored.getStates());
+			assertEquals(Arrays.asList(1, null, 3), new ArrayList<>(restored.getValues()));
+			assertEquals(Integer.valueOf(Integer.MAX_VALUE), store.restore("second").getCurrentValue());
+			assertTrue(store.restore("empty").isEmpty());
+			assertNull(store.restore("missing"));
+		} finally {
+			delete(dir);
+		}
+	}
+	
+	@Test
+	public void testRestoreIntoModel() throws IOException {
+		final Path dir = Files.createTempDirectory("breadcrumb");
+		try {
+			final DefaultBreadcrumbModel<String, String> trail = new DefaultBreadcrumbModel<>();
+			trail.addState("a", "va");
+			trail.addState("b", "vb");
+			final Path file = dir.resolve("trails.bin");
+			final BreadcrumbStore<String, String> store = new BreadcrumbStore<>(file, BreadcrumbCodec.STRING, BreadcrumbCodec.STRING);
+			store.save(Collections.singletonMap("trail", trail));
+			
+			final DefaultBreadcrumbModel<String, String> model = new DefaultBreadcrumbModel<>();
+			model.addState("x", "vx");
+			final List<BreadcrumbEvent<String, String>> events = new ArrayList<>();
+			model.addBreadcrumbListener(events::add);
+			assertTrue(store.restore("trail", model));
+			assertEquals(Arrays.asList("a", "b"), model.getStates());
+			assertEquals("vb", model.getCurrentValue());
+			assertEquals(1, events.size());
+			assertEquals(BreadcrumbEventType.STATES_CHANGED, events.get(0).getEventType());
+			
+			assertFalse(store.restore("missing", model));
+			assertEquals(1, events.size());
+		} finally {
+			delete(dir);
+		}
+	}
+	
+	@Test
+	public void testSaveReplacesContents() throws IOException {
+		final Path dir = Files.createTempDirectory("breadcrumb");
+		try {
+			final Path file = dir.resolve("trails.bin");
+			final BreadcrumbStore<Integer, Long> store = new BreadcrumbStore<>(file, BreadcrumbCodec.INTEGER, BreadcrumbCodec.LONG);
+			final DefaultBreadcrumbModel<Integer, Long> model = new DefaultBreadcrumbModel<>();
+			model.addState(1, 1L);
+			store.save(Collections.singletonMap("old", model));
+			assertEquals(1, store.getTrailSize("old"));
+			
+			model.addState(2, Long.MIN_VALUE);
+			store.save(Collections.singletonMap("new", model));
+			assertEquals(Arrays.asList("new"), new ArrayList<>(store.getTrailNames()));
+			assertEquals(Long.valueOf(Long.MIN_VALUE), store.restore("new").getCurrentValue());
+			try(Stream<Path> files = Files.list(dir)) {
+				assertEquals(1L, files.count(), "temporary file is removed");
+			}
+		} finally {
+			delete(dir);
+		}
+	}
+	
+	@Test
+	public void testMissingFile() throws IOException {
+		final Path dir = Files.createTempDirectory("breadcrumb");
+		try {
+			final BreadcrumbStore<String, String> store = new BreadcrumbStore<>(dir.resolve("missing.bin"), BreadcrumbCodec.STRING, BreadcrumbCodec.STRING);
+			assertTrue(store.getTrailNames().isEmpty());
+			assertEquals(-1, store.getTrailSize("trail"));
+			assertNull(store.restore("trail"));
+		} finally {
+			delete(dir);
+		}
+	}
+	
+	@Test
+	public void testCorruptFile() throws IOException {
+		final Path dir = Files.createTempDirectory("breadcrumb");
+		try {
+			final Path file = dir.resolve("trails.bin");
+			final BreadcrumbStore<String, String> store = new BreadcrumbStore<>(file, BreadcrumbCodec.STRING, BreadcrumbCodec.STRING);
+			
+			Files.write(file, "not a breadcrumb store".getBytes("UTF-8"));
+			assertThrows(IOException.class, () -> store.getTrailNames());
+			
+			// valid header, directory offset past the end of the file
+			final DefaultBreadcrumbModel<String, String> model = new DefaultBreadcrumbModel<>();
+			model.addState("a", "va");
+			store.save(Collections.singletonMap("trail", model));
+			final byte[] data = Files.readAllBytes(file);
+			data[data.length - 1] = (byte)0x7f;
+			Files.write(file, data);
+			store.close();
+			assertThrows(IOException.class, () -> store.getTrailNames());
+		} finally {
+			delete(dir);
+		}
+	}
+	
+	private static void delete(Path dir) throws IOException {
+		try(Stream<Path> files = Files.list(dir)) {
+			for(Path file : (Iterable<Path>)files::iterator)
+				Files.delete(file);
+		}
+		Files.delete(dir);
+	}
+
+}
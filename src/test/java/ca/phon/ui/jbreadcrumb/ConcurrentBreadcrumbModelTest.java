@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import ca.phon.ui.jbreadcrumb.DefaultBreadcrumbModel.EvictionPolicy;
+
+/**
+ * Stress tests for {@link ConcurrentBreadcrumbModel}.  Writer threads add
+ * states and navigate while reader threads read the model the way the
+ * breadcrumb UI does when painting.  The value of every state is
+ * <code>"v" + state</code>, which readers check on every read.
+ */
+public class ConcurrentBreadcrumbModelTest {
+	
+	private final static int WRITERS = 4;
+	
+	private final static int READERS = 4;
+	
+	private final static int OPERATIONS = 20000;
+	
+	private final static int STATES = 100;
+	
+	@Test
+	public void testAddGotoPaintRead() throws InterruptedException {
+		final ConcurrentBreadcrumbModel<Integer, String> model = new ConcurrentBreadcrumbModel<>(64, EvictionPolicy.OLDEST);
+		stress(model);
+	}
+	
+	@Test
+	public void testAddGotoPaintReadWithValueLoader() throws InterruptedException {
+		final ConcurrentBreadcrumbModel<Integer, String> model = new ConcurrentBreadcrumbModel<>(64, EvictionPolicy.KEEP_ROOT);
+		model.setValueLoader((state) -> "v" + state, new BreadcrumbValueCache<>(8));
+		stress(model);
+	}
+	
+	/**
+	 * Readers which look up states and values while more writers than
+	 * available processors keep writers queued on the lock.  A reader
+	 * which re-acquired the read lock while holding it would deadlock
+	 * behind a queued writer.
+	 */
+	@Test
+	public void testReadersWithQueuedWriters() throws InterruptedException {
+		final ConcurrentBreadcrumbModel<Integer, String> model = new ConcurrentBreadcrumbModel<>(64, EvictionPolicy.OLDEST);
+		model.setValueLoader((state) -> "v" + state, new BreadcrumbValueCache<>(16));
+		final int writerCount = Math.max(WRITERS, 2 * Runtime.getRuntime().availableProcessors());
+		final ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+		final AtomicBoolean done = new AtomicBoolean(false);
+		final CountDownLatch start = new CountDownLatch(1);
+		
+		final List<Thread> threads = new ArrayList<>();
+		for(int i = 0; i < writerCount; i++) {
+			final Random random = new Random(i);
+			threads.add(new Thread(() -> {
+				await(start);
+				while(!done.get()) {
+					final int state = random.nextInt(STATES);
+					if(random.nextBoolean())
+						model.addState(state, "v" + state);
+					else
+						model.gotoState(state);
+				}
+			}));
+		}
+		for(int i = 0; i < READERS; i++) {
+			final Random random = new Random(-i);
+			threads.add(new Thread(() -> {
+				await(start);
+				while(!done.get()) {
+					try {
+						final Integer state = random.nextInt(STATES);
+						model.getValue(state);
+						model.getValueIfPresent(state);
+						model.getCurrentValue();
+						model.getValues();
+						model.getStates();
+						model.getForwardStates();
+						model.canGoForward();
+					} catch (Throwable t) {
+						failures.add(t);
+					}
+				}
+			}));
+		}
+		
+		threads.forEach(Thread::start);
+		start.countDown();
+		Thread.sleep(TimeUnit.SECONDS.toMillis(3));
+		done.set(true);
+		for(Thread thread : threads) {
+			thread.join(TimeUnit.SECONDS.toMillis(10));
+			assertFalse(thread.isAlive(), "Deadlock: thread did not finish");
+		}
+		assertTrue(failures.isEmpty(), failures.toString());
+	}
+	
+	private void stress(ConcurrentBreadcrumbModel<Integer, String> model) throws InterruptedException {
+		final ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+		final AtomicBoolean done = new AtomicBoolean(false);
+		final AtomicInteger events = new AtomicInteger();
+		final AtomicInteger reads = new AtomicInteger();
+		model.addBreadcrumbListener((evt) -> {
+			events.incrementAndGet();
+			// listeners may read from the model
+			model.getCurrentValue();
+		});
+		
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Thread> writers = new ArrayList<>();
+		for(int i = 0; i < WRITERS; i++) {
+			final Random random = new Random(i);
+			writers.add(new Thread(() -> {
+				await(start);
+				for(int op = 0; op < OPERATIONS; op++) {
+					try {
+						final int state = random.nextInt(STATES);
+						switch(random.nextInt(4)) {
+						case 0:
+						case 1:
+							model.addState(state, "v" + state);
+							break;
+						
+						case 2:
+							if(model.containsState(state))
+								model.gotoState(state);
+							break;
+						
+						default:
+							final int size = model.size();
+							if(size > 0)
+								model.gotoIndex(random.nextInt(size));
+							break;
+						}
+					} catch (IndexOutOfBoundsException e) {
+						// state removed by another writer since checked
+					} catch (Throwable t) {
+						failures.add(t);
+					}
+				}
+			}));
+		}
+		
+		final List<Thread> readers = new ArrayList<>();
+		for(int i = 0; i < READERS; i++) {
+			final Random random = new Random(-i);
+			readers.add(new Thread(() -> {
+				await(start);
+				while(!done.get()) {
+					try {
+						paintRead(model);
+						final Integer state = random.nextInt(STATES);
+						final String value = model.getValue(state);
+						if(value != null)
+							assertEquals("v" + state, value);
+						final String presentValue = model.getValueIfPresent(state);
+						if(presentValue != null)
+							assertEquals("v" + state, presentValue);
+						final int index = model.getIndexOfState(state);
+						assertTrue(index >= -1 && index < 64);
+						reads.incrementAndGet();
+					} catch (Throwable t) {
+						failures.add(t);
+					}
+				}
+			}));
+		}
+		
+		writers.forEach(Thread::start);
+		readers.forEach(Thread::start);
+		start.countDown();
+		for(Thread writer : writers)
+			writer.join();
+		done.set(true);
+		for(Thread reader : readers)
+			reader.join();
+		
+		if(!failures.isEmpty()) {
+			final AssertionError error = new AssertionError(failures.size() + " failures");
+			failures.forEach(error::addSuppressed);
+			throw error;
+		}
+		assertTrue(events.get() > 0);
+		assertTrue(reads.get() > 0);
+		assertConsistent(model);
+	}
+	
+	/**
+	 * Reads states and values the way the breadcrumb UI does when
+	 * painting.  The model may change between reads.
+	 */
+	private void paintRead(BreadcrumbModel<Integer, String> model) {
+		final int size = model.size();
+		for(int i = 0; i < size; i++) {
+			try {
+				final Integer state = model.peekState(i);
+				final String value = model.getValueAt(i);
+				assertTrue(state >= 0 && state < STATES);
+				assertTrue(value.startsWith("v"));
+			} catch (IndexOutOfBoundsException e) {
+				// model shrunk since size was read
+				break;
+			}
+		}
+		final List<Integer> states = model.getStates();
+		for(Integer state : states)
+			assertTrue(state >= 0 && state < STATES);
+	}
+	
+	private void assertConsistent(BreadcrumbModel<Integer, String> model) {
+		final List<Integer> states = model.getStates();
+		assertEquals(states.size(), model.size());
+		assertTrue(model.size() <= 64);
+		for(int i = 0; i < states.size(); i++) {
+			final Integer state = states.get(i);
+			assertEquals(state, model.peekState(i));
+			assertEquals("v" + state, model.getValueAt(i));
+			assertEquals(states.indexOf(state), model.getIndexOfState(state));
+			assertTrue(model.containsState(state));
+		}
+		for(int state = 0; state < STATES; state++) {
+			if(!states.contains(state))
+				assertFalse(model.containsState(state));
+		}
+		if(!states.isEmpty())
+			assertEquals(states.get(states.size() - 1), model.getCurrentState());
+	}
+	
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
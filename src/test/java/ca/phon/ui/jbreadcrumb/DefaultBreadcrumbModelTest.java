@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ca.phon.ui.jbreadcrumb.BreadcrumbEvent.BreadcrumbEventType;
+import ca.phon.ui.jbreadcrumb.DefaultBreadcrumbModel.EvictionPolicy;
+
+/**
+ * Tests of the bounded depth, snapshots and forward history of
+ * {@link DefaultBreadcrumbModel}.  The value of every state is
+ * <code>"v" + state</code> unless noted.
+ */
+public class DefaultBreadcrumbModelTest {
+	
+	//
+	// Eviction
+	//
+	
+	@Test
+	public void testEvictOldest() {
+		final DefaultBreadcrumbModel<String, String> model = new DefaultBreadcrumbModel<>(3, EvictionPolicy.OLDEST);
+		final List<BreadcrumbEvent<String, String>> events = new ArrayList<>();
+		addStates(model, "a", "b", "c");
+		model.addBreadcrumbListener(events::add);
+		
+		model.addState("d", "vd");
+		assertEquals(Arrays.asList("b", "c", "d"), model.getStates());
+		assertEquals(Arrays.asList("vb", "vc", "vd"), new ArrayList<>(model.getValues()));
+		assertFalse(model.containsState("a"));
+		assertEquals(0, model.getIndexOfState("b"));
+		assertEquals(2, model.getIndexOfState("d"));
+		
+		final BreadcrumbEvent<String, String> evicted = events.get(0);
+		assertEquals(BreadcrumbEventType.STATE_EVICTED, evicted.getEventType());
+		assertEquals("a", evicted.getState());
+		assertEquals("va", evicted.getValue());
+		assertEquals(0, evicted.getStateIndex());
+	}
+	
+	@Test
+	public void testEvictKeepRoot() {
+		final DefaultBreadcrumbModel<String, String> model = new DefaultBreadcrumbModel<>(3, EvictionPolicy.KEEP_ROOT);
+		final List<BreadcrumbEvent<String, String>> events = new ArrayList<>();
+		addStates(model, "a", "b", "c");
+		model.addBreadcrumbListener(events::add);
+		
+		model.addState("d", "vd");
+		model.addState("e", "ve");
+		assertEquals(Arrays.asList("a", "d", "e"), model.getStates());
+		assertEquals(Arrays.asList("va", "vd", "ve"), new ArrayList<>(model.getValues()));
+		assertEquals(1, model.getIndexOfState("d"));
+		
+		final BreadcrumbEvent<String, String> evicted = events.get(0);
+		assertEquals(BreadcrumbEventType.STATE_EVICTED, evicted.getEventType());
+		assertEquals("b", evicted.getState());
+		assertEquals(1, evicted.getStateIndex());
+	}
+	
+	@Test
+	public void testEvictDuplicateState() {
+		final DefaultBreadcrumbModel<String, String> model = new DefaultBreadcrumbModel<>(3, EvictionPolicy.OLDEST);
+		addStates(model, "a", "b", "a", "c");
+		assertEquals(Arrays.asList("b", "a", "c"), model.getStates());
+		assertTrue(model.containsState("a"));
+		assertEquals(1, model.getIndexOfState("a"));
+		
+		model.gotoState("a");
+		assertEquals(Arrays.asList("b", "a"), model.getStates());
+	}
+	
+	@Test
+	public void testSetMaximumDepth() {
+		final DefaultBreadcrumbModel<String, String> model = new DefaultBreadcrumbModel<>();
+		final List<BreadcrumbEvent<String, String>> events = new ArrayList<>();
+		addStates(model, "a", "b", "c", "d", "e");
+		model.addBreadcrumbListener(events::add);
+		
+		model.setMaximumDepth(2);
+		assertEquals(Arrays.asList("d", "e"), model.getStates());
+		assertEquals(1, events.size(), "evictions are reported as one batch update");
+		assertEquals(BreadcrumbEventType.STATES_CHANGED, events.get(0).getEventType());
+		
+		model.addState("f", "vf");
+		assertEquals(Arrays.asList("e", "f"), model.getStates());
+	}
+	
+	//
+	// Snapshots
+	//
+	
+	@Test
+	public void testSnapshotIsImmutable() {
+		final DefaultBreadcrumbModel<String, String> model = new DefaultBreadcrumbModel<>();
+		addStates(model, "a", "b", "c");
+		final BreadcrumbSnapshot<String, String> snapshot = model.snapshot();
+		
+		model.gotoIndex(0);
+		model.addState("x", "vx");
+		model.setValue("a", "changed");
+		assertEquals(Arrays.asList("a", "b", "c"), snapshot.getStates());
+		assertEquals("c", snapshot.getCurrentState());
+		assertEquals("vc", snapshot.getCurrentValue());
+		assertEquals("va", snapshot.getEntries().get(0).getValue());
+	}
+	
+	@Test
+	public void testRestoreSnapshot() {
+		final DefaultBreadcrumbModel<String, String> model = new DefaultBreadcrumbModel<>();
+		addStates(model, "a", "b", "c");
+		final BreadcrumbSnapshot<String, String> snapshot = model.snapshot();
+		model.gotoIndex(0);
+		addStates(model, "x", "y");
+		
+		final List<BreadcrumbEvent<String, String>> events = new ArrayList<>();
+		model.addBreadcrumbListener(events::add);
+		model.restore(snapshot);
+		assertEquals(Arrays.asList("a", "b", "c"), model.getStates());
+		assertEquals(Arrays.asList("va", "vb", "vc"), new ArrayList<>(model.getValues()));
+		assertEquals(2, model.getIndexOfState("c"));
+		assertEquals(1, events.size());
+		assertEquals(BreadcrumbEventType.STATES_CHANGED, events.get(0).getEventType());
+		assertEquals(1, events.get(0).getFirstIndex(), "the shared root is kept");
+		
+		// restoring the current snapshot changes nothing
+		events.clear();
+		model.restore(model.snapshot());
+		assertTrue(events.isEmpty());
+		
+		model.restore(new DefaultBreadcrumbModel<String, String>().snapshot());
+		assertTrue(model.isEmpty());
+	}
+	
+	@Test
+	public void testRestoreSnapshotAfterEviction() {
+		final DefaultBreadcrumbModel<String, String> model = new DefaultBreadcrumbModel<>(3, EvictionPolicy.OLDEST);
+		addStates(model, "a", "b", "c");
+		final BreadcrumbSnapshot<String, String> snapshot = model.snapshot();
+		addStates(model, "d", "e");
+		assertEquals(Arrays.asList("c", "d", "e"), model.getStates());
+		
+		model.restore(snapshot);
+		assertEquals(Arrays.asList("a", "b", "c"), model.getStates());
+		assertEquals(Arrays.asList("va", "vb", "vc"), new ArrayList<>(model.getValues()));
+		assertEquals(Arrays.asList("a", "b", "c"), model.snapshot().getStates());
+	}
+	
+	//
+	// Forward history
+	//
+	
+	@Test
+	public void testForwardHistory() {
+		final DefaultBreadcrumbModel<String, String> model = new DefaultBreadcrumbModel<>();
+		model.setForwardHistoryLimit(10);
+		addStates(model, "a", "b", "c", "d");
+		assertFalse(model.canGoForward());
+		
+		assertTrue(model.goBack());
+		assertTrue(model.goBack());
+		assertEquals(Arrays.asList("a", "b"), model.getStates());
+		assertEquals(Arrays.asList("c", "d"), model.getForwardStates());
+		
+		assertTrue(model.goForward());
+		assertEquals(Arrays.asList("a", "b", "c"), model.getStates());
+		assertEquals("vc", model.getCurrentValue());
+		assertEquals(Arrays.asList("d"), model.getForwardStates());
+		
+		// truncation keeps the removed states, nearest first
+		model.gotoIndex(0);
+		assertEquals(Arrays.asList("b", "c", "d"), model.getForwardStates());
+		
+		// adding a state starts a new branch
+		model.addState("x", "vx");
+		assertFalse(model.canGoForward());
+		assertFalse(model.goForward());
+		
+		model.gotoIndex(0);
+		assertFalse(model.goBack());
+	}
+	
+	@Test
+	public void testForwardHistoryLimits() {
+		final DefaultBreadcrumbModel<String, String> model = new DefaultBreadcrumbModel<>();
+		model.setForwardHistoryLimit(2);
+		addStates(model, "a", "b", "c", "d", "e");
+		model.gotoIndex(0);
+		assertEquals(Arrays.asList("b", "c"), model.getForwardStates());
+		
+		// values of 2 bytes, only one fits
+		model.setValueSizeEstimator(String::length);
+		model.setForwardHistoryByteLimit(3L);
+		model.goForward();
+		model.goForward();
+		model.gotoIndex(0);
+		assertEquals(Arrays.asList("b"), model.getForwardStates());
+		
+		model.setForwardHistoryByteLimit(0L);
+		model.setRetainForwardValues(false);
+		model.goForward();
+		model.goBack();
+		assertEquals(Arrays.asList("b"), model.getForwardStates());
+		model.goForward();
+		assertEquals("b", model.getCurrentState());
+		assertNull(model.getCurrentValue());
+		
+		model.setForwardHistoryLimit(0);
+		model.goBack();
+		assertFalse(model.canGoForward());
+	}
+	
+	private static void addStates(BreadcrumbModel<String, String> model, String... states) {
+		for(String state : states)
+			model.addState(state, "v" + state);
+	}
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.jupiter.api.Test;
+
+import ca.phon.ui.jbreadcrumb.Breadcrumb.EntrySet;
+import ca.phon.ui.jbreadcrumb.DefaultBreadcrumbModel.EvictionPolicy;
+
+/**
+ * Tests of the incremental layout of {@link DefaultBreadcrumbUI}.  After
+ * each change to the model, the layout of the component, which is
+ * updated from the model's events, must match the layout measured by a
+ * new component for the same model.  Tests run on the event dispatch
+ * thread, where events are delivered to the UI immediately.
+ */
+public class DefaultBreadcrumbUITest {
+	
+	private final static Font FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+	
+	@Test
+	public void testAddAndTruncate() throws Exception {
+		runOnEDT(() -> {
+			final DefaultBreadcrumbModel<String, String> model = new DefaultBreadcrumbModel<>();
+			final JBreadcrumb<String, String> breadcrumb = createBreadcrumb(model);
+			assertLayout(breadcrumb);
+			
+			model.addState("a", "first");
+			assertLayout(breadcrumb);
+			for(String state : Arrays.asList("b", "c", "d", "e"))
+				model.addState(state, "state " + state);
+			assertLayout(breadcrumb);
+			
+			model.gotoIndex(1);
+			assertLayout(breadcrumb);
+			model.addState("x", "a longer state after truncating");
+			assertLayout(breadcrumb);
+			model.popState();
+			assertLayout(breadcrumb);
+			
+			model.clear();
+			assertLayout(breadcrumb);
+			assertEquals(new Dimension(0, 0), breadcrumb.getPreferredSize());
+		});
+	}
+	
+	@Test
+	public void testValueChanged() throws Exception {
+		runOnEDT(() -> {
+			final DefaultBreadcrumbModel<String, String> model = new DefaultBreadcrumbModel<>();
+			final JBreadcrumb<String, String> breadcrumb = createBreadcrumb(model);
+			for(String state : Arrays.asList("a", "b", "c"))
+				model.addState(state, state);
+			final int width = breadcrumb.getPreferredSize().width;
+			
+			model.setValueAt(1, "a much longer value");
+			assertLayout(breadcrumb);
+			assertTrue(breadcrumb.getPreferredSize().width > width);
+			
+			model.setValue("b", null);
+			assertLayout(breadcrumb);
+		});
+	}
+	
+	@Test
+	public void testEvictionAndBatchUpdate() throws Exception {
+		runOnEDT(() -> {
+			final DefaultBreadcrumbModel<String, String> model = new DefaultBreadcrumbModel<>(3, EvictionPolicy.KEEP_ROOT);
+			final JBreadcrumb<String, String> breadcrumb = createBreadcrumb(model);
+			for(String state : Arrays.asList("root", "b", "c", "a long evicting state", "e")) {
+				model.addState(state, null);
+				assertLayout(breadcrumb);
+			}
+			
+			model.set(Arrays.asList(new EntrySet<>("root", null), new EntrySet<>("y", "replaced")));
+			assertLayout(breadcrumb);
+		});
+	}
+	
+	@Test
+	public void testLoadedValue() throws Exception {
+		runOnEDT(() -> {
+			final DefaultBreadcrumbModel<String, String> model = new DefaultBreadcrumbModel<>();
+			model.setValueLoader((state) -> "a much longer loaded value for " + state, new BreadcrumbValueCache<>(4));
+			final JBreadcrumb<String, String> breadcrumb = createBreadcrumb(model);
+			for(String state : Arrays.asList("a", "b", "c"))
+				model.addState(state);
+			paint(breadcrumb);
+			final int width = breadcrumb.getPreferredSize().width;
+			
+			// loading a value fires no event, it is found when painting
+			model.getValueAt(1);
+			paint(breadcrumb);
+			assertLayout(breadcrumb);
+			assertTrue(breadcrumb.getPreferredSize().width > width);
+		});
+	}
+	
+	private static JBreadcrumb<String, String> createBreadcrumb(BreadcrumbModel<String, String> model) {
+		final JBreadcrumb<String, String> retVal = new JBreadcrumb<>(model);
+		retVal.setFont(FONT);
+		return retVal;
+	}
+	
+	private static void paint(JBreadcrumb<String, String> breadcrumb) {
+		final Dimension size = breadcrumb.getPreferredSize();
+		breadcrumb.setSize(Math.max(1, size.width), Math.max(1, size.height));
+		final BufferedImage image = new BufferedImage(breadcrumb.getWidth(), breadcrumb.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		final Graphics2D g2 = image.createGraphics();
+		try {
+			breadcrumb.paint(g2);
+		} finally {
+			g2.dispose();
+		}
+	}
+	
+	/**
+	 * Compares the layout of the given component with the layout of a new
+	 * component for the same model.  States must cover the component in
+	 * order.
+	 */
+	private static void assertLayout(JBreadcrumb<String, String> breadcrumb) {
+		final BreadcrumbModel<String, String> model = breadcrumb.getBreadcrumb();
+		final JBreadcrumb<String, String> expected = createBreadcrumb(model);
+		try {
+			final Dimension size = expected.getPreferredSize();
+			assertEquals(size, breadcrumb.getPreferredSize());
+			
+			final BreadcrumbUI ui = breadcrumb.getBreadcrumbViewerUI();
+			final BreadcrumbUI expectedUI = expected.getBreadcrumbViewerUI();
+			int lastIndex = -1;
+			for(int x = 0; x < size.width; x++) {
+				final Point p = new Point(x, size.height / 2);
+				final int stateIndex = ui.locationToStateIndex(p);
+				assertEquals(expectedUI.locationToStateIndex(p), stateIndex, "state at x = " + x);
+				assertTrue(stateIndex >= lastIndex, "states are in order");
+				lastIndex = stateIndex;
+			}
+			assertEquals(model.size() - 1, lastIndex);
+			assertEquals(-1, ui.locationToStateIndex(new Point(size.width, size.height / 2)));
+		} finally {
+			expected.setBreadcrumb(new DefaultBreadcrumbModel<>());
+		}
+	}
+	
+	private static void runOnEDT(Runnable runnable) throws InterruptedException, InvocationTargetException {
+		try {
+			SwingUtilities.invokeAndWait(runnable);
+		} catch (InvocationTargetException e) {
+			if(e.getCause() instanceof Error)
+				throw (Error)e.getCause();
+			throw e;
+		}
+	}
+
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ca.phon.ui.jbreadcrumb.Breadcrumb.EntrySet;
+
+/**
+ * Randomized test of {@link IntBreadcrumbModel} and
+ * {@link LongBreadcrumbModel} against a reference list of states and
+ * values.  States are drawn from a small set of values which collide in
+ * the model's index map, so states occur more than once and index
+ * entries are removed and re-inserted.
+ */
+public class PrimitiveBreadcrumbModelTest {
+	
+	private final static int OPERATIONS = 20000;
+	
+	private final static int STATE_COUNT = 32;
+	
+	/**
+	 * Creates models of one primitive type and calls their primitive
+	 * methods.
+	 * 
+	 * @param <S>  the boxed type of state
+	 */
+	private static abstract class ModelType<S> {
+		
+		/** States differing only in high bits, plus negative states */
+		final List<S> states = new ArrayList<>();
+		
+		abstract PrimitiveBreadcrumbModel<S, String> createModel();
+		
+		abstract void addState(PrimitiveBreadcrumbModel<S, String> model, S state, String value);
+		
+		abstract void gotoState(PrimitiveBreadcrumbModel<S, String> model, S state);
+		
+		abstract S getCurrentState(PrimitiveBreadcrumbModel<S, String> model);
+		
+	}
+	
+	private final static ModelType<Integer> INT = new ModelType<>() {
+		
+		{
+			for(int i = 0; i < STATE_COUNT; i++)
+				states.add(i % 2 == 0 ? i << 16 : -i);
+		}
+		
+		@Override
+		PrimitiveBreadcrumbModel<Integer, String> createModel() {
+			return new IntBreadcrumbModel<>();
+		}
+		
+		@Override
+		void addState(PrimitiveBreadcrumbModel<Integer, String> model, Integer state, String value) {
+			((IntBreadcrumbModel<String>)model).addState(state.intValue(), value);
+		}
+		
+		@Override
+		void gotoState(PrimitiveBreadcrumbModel<Integer, String> model, Integer state) {
+			((IntBreadcrumbModel<String>)model).gotoState(state.intValue());
+		}
+		
+		@Override
+		Integer getCurrentState(PrimitiveBreadcrumbModel<Integer, String> model) {
+			return ((IntBreadcrumbModel<String>)model).getCurrentIntState();
+		}
+		
+	};
+	
+	private final static ModelType<Long> LONG = new ModelType<>() {
+		
+		{
+			for(int i = 0; i < STATE_COUNT; i++)
+				states.add(i % 2 == 0 ? (long)i << 32 : -i);
+		}
+		
+		@Override
+		PrimitiveBreadcrumbModel<Long, String> createModel() {
+			return new LongBreadcrumbModel<>();
+		}
+		
+		@Override
+		void addState(PrimitiveBreadcrumbModel<Long, String> model, Long state, String value) {
+			((LongBreadcrumbModel<String>)model).addState(state.longValue(), value);
+		}
+		
+		@Override
+		void gotoState(PrimitiveBreadcrumbModel<Long, String> model, Long state) {
+			((LongBreadcrumbModel<String>)model).gotoState(state.longValue());
+		}
+		
+		@Override
+		Long getCurrentState(PrimitiveBreadcrumbModel<Long, String> model) {
+			return ((LongBreadcrumbModel<String>)model).getCurrentLongState();
+		}
+		
+	};
+	
+	@Test
+	public void testRandomOperations() {
+		runRandomOperations(INT, new Random(16L), false);
+		runRandomOperations(LONG, new Random(16L), false);
+	}
+	
+	@Test
+	public void testRandomOperationsWithListener() {
+		runRandomOperations(INT, new Random(61L), true);
+		runRandomOperations(LONG, new Random(61L), true);
+	}
+	
+	@Test
+	public void testSetWithNullState() {
+		assertSetWithNullState(INT);
+		assertSetWithNullState(LONG);
+	}
+	
+	private <S> void assertSetWithNullState(ModelType<S> type) {
+		final PrimitiveBreadcrumbModel<S, String> model = type.createModel();
+		model.addState(type.states.get(0), "a");
+		model.addState(type.states.get(1), "b");
+		
+		final List<EntrySet<S, String>> entries = new ArrayList<>();
+		entries.add(new EntrySet<>(type.states.get(2), "c"));
+		entries.add(new EntrySet<>(null, "d"));
+		assertThrows(NullPointerException.class, () -> model.set(entries));
+		assertEquals(type.states.subList(0, 2), model.getStates());
+		assertEquals(Arrays.asList("a", "b"), new ArrayList<>(model.getValues()));
+	}
+	
+	private <S> void runRandomOperations(ModelType<S> type, Random random, boolean listen) {
+		final PrimitiveBreadcrumbModel<S, String> model = type.createModel();
+		final List<S> states = new ArrayList<>();
+		final List<String> values = new ArrayList<>();
+		if(listen) {
+			model.addBreadcrumbListener((evt) -> {
+				if(evt.getEventType() == BreadcrumbEvent.BreadcrumbEventType.GOTO_STATE)
+					assertEquals(model.getCurrentState(), evt.getState());
+			});
+		}
+		
+		for(int op = 0; op < OPERATIONS; op++) {
+			final S state = type.states.get(random.nextInt(STATE_COUNT));
+			final String value = "v" + op;
+			switch(random.nextInt(8)) {
+			case 0:
+				model.addState(state, value);
+				states.add(state);
+				values.add(value);
+				break;
+			
+			case 1:
+			case 2:
+				type.addState(model, state, value);
+				states.add(state);
+				values.add(value);
+				break;
+			
+			case 3:
+				final EntrySet<S, String> popped = model.popState();
+				if(states.isEmpty()) {
+					assertEquals(null, popped);
+				} else {
+					assertEquals(states.remove(states.size() - 1), popped.getState());
+					assertEquals(values.remove(values.size() - 1), popped.getValue());
+				}
+				break;
+			
+			case 4:
+				if(random.nextBoolean())
+					type.gotoState(model, state);
+				else
+					model.gotoState(state);
+				if(states.contains(state))
+					truncate(states, values, states.lastIndexOf(state) + 1);
+				break;
+			
+			case 5:
+				if(!states.isEmpty()) {
+					final int index = random.nextInt(states.size());
+					model.gotoIndex(index);
+					truncate(states, values, index + 1);
+				}
+				break;
+			
+			case 6:
+				model.setValue(state, value);
+				if(states.contains(state))
+					values.set(states.indexOf(state), value);
+				break;
+			
+			default:
+				if(random.nextInt(10) == 0) {
+					model.clear();
+					truncate(states, values, 0);
+				} else {
+					// keep a random prefix and append new states
+					final List<EntrySet<S, String>> entries = new ArrayList<>();
+					final int keep = random.nextInt(states.size() + 1);
+					truncate(states, values, keep);
+					for(int i = 0; i < keep; i++)
+						entries.add(new EntrySet<>(states.get(i), values.get(i)));
+					for(int i = random.nextInt(4); i > 0; i--) {
+						final S addedState = type.states.get(random.nextInt(STATE_COUNT));
+						entries.add(new EntrySet<>(addedState, value));
+						states.add(addedState);
+						values.add(value);
+					}
+					model.set(entries);
+				}
+				break;
+			}
+			assertMatches(type, states, values, model);
+		}
+	}
+	
+	private static <S> void truncate(List<S> states, List<String> values, int size) {
+		states.subList(size, states.size()).clear();
+		values.subList(size, values.size()).clear();
+	}
+	
+	private static <S> void assertMatches(ModelType<S> type, List<S> states, List<String> values,
+			PrimitiveBreadcrumbModel<S, String> model) {
+		assertEquals(states.size(), model.size());
+		assertEquals(states, model.getStates());
+		assertEquals(values, new ArrayList<>(model.getValues()));
+		for(S state : type.states) {
+			final int index = states.indexOf(state);
+			assertEquals(index >= 0, model.containsState(state));
+			assertEquals(index, model.getIndexOfState(state));
+			assertEquals((index >= 0 ? values.get(index) : null), model.getValue(state));
+		}
+		if(!states.isEmpty()) {
+			assertEquals(states.get(states.size() - 1), type.getCurrentState(model));
+			assertEquals(values.get(values.size() - 1), model.getCurrentValue());
+		}
+	}
+
+}
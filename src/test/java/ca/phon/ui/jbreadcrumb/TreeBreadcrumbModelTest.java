@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2012-2018 Gregory Hedlund
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *    http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ca.phon.ui.jbreadcrumb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ca.phon.ui.jbreadcrumb.BreadcrumbEvent.BreadcrumbEventType;
+import ca.phon.ui.jbreadcrumb.TreeBreadcrumbModel.Node;
+
+/**
+ * Tests of the navigation tree kept by {@link TreeBreadcrumbModel}.  The
+ * value of every state is <code>"v" + state</code> unless noted.
+ */
+public class TreeBreadcrumbModelTest {
+	
+	@Test
+	public void testPopKeepsBranch() {
+		final TreeBreadcrumbModel<String, String> model = new TreeBreadcrumbModel<>();
+		addStates(model, "a", "b", "c");
+		final Node<String, String> c = model.getCurrentNode();
+		
+		model.popState();
+		assertEquals(Arrays.asList("a", "b"), model.getStates());
+		assertEquals(c, model.getCurrentNode().getChild("c"));
+		
+		model.gotoState("a");
+		assertEquals(Arrays.asList("a"), model.getStates());
+		assertEquals(1, model.getRoots().size());
+		assertEquals(2, c.getDepth());
+		assertEquals("b", c.getParent().getState());
+	}
+	
+	@Test
+	public void testAddStateReusesNode() {
+		final TreeBreadcrumbModel<String, String> model = new TreeBreadcrumbModel<>();
+		addStates(model, "a", "b");
+		final Node<String, String> b = model.getCurrentNode();
+		model.gotoIndex(0);
+		
+		// the existing value is kept when no value is given
+		model.addState("b");
+		assertTrue(b == model.getCurrentNode());
+		assertEquals("vb", model.getCurrentValue());
+		
+		// and replaced otherwise
+		model.gotoIndex(0);
+		model.addState("b", "changed");
+		assertTrue(b == model.getCurrentNode());
+		assertEquals("changed", b.getValue());
+		assertEquals(1, model.getRoots().iterator().next().getChildren().size());
+		
+		model.gotoIndex(0);
+		model.addState("x", "vx");
+		assertEquals(2, model.getRoots().iterator().next().getChildren().size());
+	}
+	
+	@Test
+	public void testSwitchTo() {
+		final TreeBreadcrumbModel<String, String> model = new TreeBreadcrumbModel<>();
+		addStates(model, "a", "b", "c", "d");
+		final Node<String, String> d = model.getCurrentNode();
+		model.gotoIndex(1);
+		addStates(model, "x", "y");
+		
+		final List<BreadcrumbEvent<String, String>> events = new ArrayList<>();
+		model.addBreadcrumbListener(events::add);
+		model.switchTo(d);
+		assertEquals(Arrays.asList("a", "b", "c", "d"), model.getStates());
+		assertEquals(Arrays.asList("va", "vb", "vc", "vd"), new ArrayList<>(model.getValues()));
+		assertEquals(1, events.size());
+		assertEquals(BreadcrumbEventType.STATES_CHANGED, events.get(0).getEventType());
+		assertEquals(2, events.get(0).getFirstIndex(), "the shared prefix is kept");
+		assertEquals(3, model.getIndexOfState("d"));
+		assertFalse(model.containsState("x"));
+		
+		// switching to a node on the path truncates the path
+		events.clear();
+		model.switchTo(d.getParent().getParent());
+		assertEquals(Arrays.asList("a", "b"), model.getStates());
+		assertEquals(1, events.size());
+		
+		// switching to the current node changes nothing
+		events.clear();
+		model.switchTo(model.getCurrentNode());
+		assertTrue(events.isEmpty());
+		
+		final TreeBreadcrumbModel<String, String> other = new TreeBreadcrumbModel<>();
+		addStates(other, "a");
+		assertThrows(IllegalArgumentException.class, () -> model.switchTo(other.getCurrentNode()));
+	}
+	
+	@Test
+	public void testRepeatedStates() {
+		final TreeBreadcrumbModel<String, String> model = new TreeBreadcrumbModel<>();
+		addStates(model, "a", "b", "a", "c");
+		assertEquals(0, model.getIndexOfState("a"));
+		assertEquals("va", model.getValue("a"));
+		assertTrue(model.containsState("c"));
+		
+		// goes to the last occurrence
+		model.gotoState("a");
+		assertEquals(Arrays.asList("a", "b", "a"), model.getStates());
+		assertFalse(model.containsState("c"));
+		
+		model.popState();
+		model.popState();
+		assertEquals(0, model.getIndexOfState("a"));
+		assertFalse(model.containsState("b"));
+	}
+	
+	@Test
+	public void testRemoveBranch() {
+		final TreeBreadcrumbModel<String, String> model = new TreeBreadcrumbModel<>();
+		addStates(model, "a", "b", "c");
+		final Node<String, String> b = model.getCurrentNode().getParent();
+		model.gotoIndex(0);
+		addStates(model, "x");
+		
+		// a branch off the path leaves the path unchanged
+		model.removeBranch(b);
+		assertEquals(Arrays.asList("a", "x"), model.getStates());
+		assertNull(model.getRoots().iterator().next().getChild("b"));
+		
+		// a branch on the path truncates the path
+		model.removeBranch(model.getCurrentNode());
+		assertEquals(Arrays.asList("a"), model.getStates());
+		assertTrue(model.getCurrentNode().getChildren().isEmpty());
+		
+		model.removeBranch(model.getCurrentNode());
+		assertTrue(model.isEmpty());
+		assertTrue(model.getRoots().isEmpty());
+	}
+	
+	@Test
+	public void testClear() {
+		final TreeBreadcrumbModel<String, String> model = new TreeBreadcrumbModel<>();
+		addStates(model, "a", "b");
+		model.clear();
+		assertTrue(model.isEmpty());
+		assertNull(model.getCurrentNode());
+		assertEquals(1, model.getRoots().size());
+		
+		model.addState("a");
+		model.addState("b");
+		assertEquals("vb", model.getCurrentValue());
+		
+		model.clearTree();
+		assertTrue(model.isEmpty());
+		assertTrue(model.getRoots().isEmpty());
+	}
+	
+	private static void addStates(BreadcrumbModel<String, String> model, String... states) {
+		for(String state : states)
+			model.addState(state, "v" + state);
+	}
+
+}